@@ -0,0 +1,80 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Regression suite for the CommonUtils validators and date formatting against their former implementations,
+ * which compiled the pattern or created the date format on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CommonUtilsBenchmark {
+
+    private final String domainName = "mail.corp.kristasoft.com";
+    private final String email = "John.Smith+tag@mail.kristasoft.com";
+
+    @Benchmark
+    public boolean isValidDomain() {
+        return CommonUtils.isValidDomain(domainName);
+    }
+
+    @Benchmark
+    public boolean isValidDomainCompiledPerCall() {
+        return Pattern.compile("^((?!-)[A-Za-z0-9-]{1,63}(?<!-)\\.)+[A-Za-z]{2,6}").matcher(domainName).matches();
+    }
+
+    @Benchmark
+    public boolean isValidEmail() {
+        return CommonUtils.isValidEmail(email);
+    }
+
+    @Benchmark
+    public boolean isValidEmailCompiledPerCall() {
+        return Pattern.compile("^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$")
+                .matcher(email).matches();
+    }
+
+    @Benchmark
+    public String getDate() {
+        return CommonUtils.getDate();
+    }
+
+    @Benchmark
+    public String getDateSimpleDateFormat() {
+        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss Z");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return dateFormat.format(Calendar.getInstance().getTime());
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares what one login request used to spend on the email address (validate, normalize, then take the local
+ * part and the domain, each re-running the regular expression) with parsing it once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailAddressBenchmark {
+
+    private static final Pattern EMAIL_ADDRESS_PATTERN =
+            Pattern.compile("^[a-z0-9_+&*-]+(?:\\.[a-z0-9_+&*-]+)*@(?:[a-z0-9-]+\\.)+[a-z]{2,7}$");
+
+    @Param({"bob@example.com", " John.Smith+Tag@Mail.Corp.Example.co.uk ", "john.smith.example.com"})
+    public String emailAddress;
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        if (isValid(emailAddress)) {
+            blackhole.consume(normalizeEmailAddress(emailAddress));
+            blackhole.consume(normalizeEmailAddress(emailAddress).split("@")[0]);
+            blackhole.consume(normalizeEmailAddress(emailAddress).split("@")[1]);
+        }
+    }
+
+    @Benchmark
+    public void parser(Blackhole blackhole) {
+        EmailAddress parsed = EmailAddress.tryParse(emailAddress);
+        if (parsed != null) {
+            blackhole.consume(parsed.getNormalized());
+            blackhole.consume(parsed.getLocalPart());
+            blackhole.consume(parsed.getDomainName());
+        }
+    }
+
+    private static boolean isValid(String emailAddress) {
+        return !emailAddress.isBlank() && EMAIL_ADDRESS_PATTERN.matcher(normalize(emailAddress)).matches();
+    }
+
+    private static String normalizeEmailAddress(String emailAddress) {
+        if (!isValid(emailAddress)) {
+            throw new IllegalArgumentException();
+        }
+        return normalize(emailAddress);
+    }
+
+    private static String normalize(String emailAddress) {
+        return emailAddress.strip().toLowerCase();
+    }
+
+}
@@ -22,35 +22,101 @@ import app.krista.extension.authorization.AuthorizationException;
 import app.krista.extension.request.ProtoRequest;
 import app.krista.extension.request.protos.http.HttpRequest;
 import app.krista.ksdk.authentication.SessionManager;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 public class ClientSessionUtil {
 
-    private final static Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final String CLIENT_SESSION_ID = "clientSessionId";
+    private static final SessionAccountCache ACCOUNT_IDS = new SessionAccountCache();
 
-    @SuppressWarnings({"unchecked", "deprecation"})
+    /**
+     * Returns the id of the account the client session of the X-Krista-Context header belongs to.
+     * Sessions looked up recently are answered from a shared cache without calling the session manager.
+     * Client sessions are ended by the platform, not by this extension, so nothing invalidates the cache:
+     * a session that was revoked is still accepted for up to 30 seconds after it was cached.
+     *
+     * @param sessionManager
+     * @param request
+     * @return String or null if the request has no client session
+     * @throws AuthorizationException
+     * @throws ExecutionException
+     * @throws InterruptedException
+     */
     public static String getAuthenticatedAccountId(SessionManager sessionManager, ProtoRequest request)
             throws AuthorizationException, ExecutionException, InterruptedException {
+        return getAuthenticatedAccountId(sessionManager, request, ACCOUNT_IDS);
+    }
+
+    public static String getAuthenticatedAccountId(SessionManager sessionManager, ProtoRequest request,
+            SessionAccountCache accountIds)
+            throws AuthorizationException, ExecutionException, InterruptedException {
         if (sessionManager == null || !(request instanceof HttpRequest)) {
             return null;
         }
-        String requestCtx = ((HttpRequest) (request)).getHeaders().get("X-Krista-Context");
+        return getAuthenticatedAccountId(sessionManager,
+                ((HttpRequest) (request)).getHeaders().get("X-Krista-Context"), accountIds);
+    }
+
+    @SuppressWarnings("deprecation")
+    static String getAuthenticatedAccountId(SessionManager sessionManager, String requestCtx,
+            SessionAccountCache accountIds)
+            throws AuthorizationException, ExecutionException, InterruptedException {
+        String clientSessionId = getClientSessionId(requestCtx);
+        if (clientSessionId == null) {
+            return null;
+        }
+        String accountId = accountIds.getAccountId(clientSessionId);
+        if (accountId == null) {
+            accountId = sessionManager.lookupAccountId(clientSessionId);
+            if (accountId != null) {
+                accountIds.put(clientSessionId, accountId);
+            }
+        }
+        return accountId;
+    }
+
+    /**
+     * Reads the top level clientSessionId member of the URL encoded JSON context, stopping as soon as it is
+     * found. Other members are skipped without being materialized, and the header is only URL decoded if it
+     * contains escapes.
+     *
+     * @param requestCtx
+     * @return String or null if the member is missing or null
+     */
+    @SuppressWarnings("deprecation")
+    static String getClientSessionId(String requestCtx) {
         if (requestCtx == null) {
             return null;
         }
-        Map<String, ?> map =
-                (Map<String, ?>) GSON.fromJson(URLDecoder.decode(requestCtx, StandardCharsets.UTF_8), Map.class);
-        Object clientSessionId = map.get("clientSessionId");
-        if (clientSessionId == null) {
+        String json = requestCtx.indexOf('%') >= 0 || requestCtx.indexOf('+') >= 0
+                ? URLDecoder.decode(requestCtx, StandardCharsets.UTF_8) : requestCtx;
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals(CLIENT_SESSION_ID)) {
+                    reader.skipValue();
+                    continue;
+                }
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    return reader.nextString();
+                }
+                reader.skipValue();
+                return null;
+            }
             return null;
+        } catch (IOException | IllegalStateException cause) {
+            throw new JsonSyntaxException(cause);
         }
-        return sessionManager.lookupAccountId((String) clientSessionId);
     }
 
 }
@@ -18,61 +18,34 @@
 
 package app.krista.extension.common;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import app.krista.extension.authorization.AuthorizationException;
 import app.krista.ksdk.accounts.AccountManager;
 import app.krista.ksdk.authentication.AuthenticationSettings;
 
 public final class CommonUtils {
 
-    public static boolean isValidDomain(String domainName) {
-
-        // If the string is empty
-        // return false
-        if (domainName == null || domainName.isEmpty()) {
-            return false;
-        }
-
-        // Regex to check valid domain name.
-        String regex = "^((?!-)[A-Za-z0-9-]"
-                + "{1,63}(?<!-)\\.)"
-                + "+[A-Za-z]{2,6}";
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss Z", Locale.ROOT).withZone(ZoneOffset.UTC);
 
-        // Compile the ReGex
-        Pattern p
-                = Pattern.compile(regex);
+    private static volatile FormattedDate lastDate = new FormattedDate(Long.MIN_VALUE, null);
 
-        // Pattern class contains matcher()
-        // method to find the matching
-        // between the given string and
-        // regular expression.
-        Matcher m = p.matcher(domainName);
-
-        // Return if the string
-        // matched the ReGex
-        return m.matches();
+    public static boolean isValidDomain(String domainName) {
+        return SupportedDomains.isValidDomainName(domainName);
     }
 
     public static boolean isEmailDomainPresentInSupportedWorkspaceDomains(String email, String allDomains) {
+        return isEmailDomainAllowed(email, DomainPolicy.of(allDomains));
+    }
+
+    public static boolean isEmailDomainAllowed(String email, DomainPolicy domainPolicy) {
         if (email == null || email.isBlank()) {
             return false;
         }
-        if (allDomains == null || allDomains.isEmpty() || allDomains.equalsIgnoreCase("All")) {
-            return true;
-        } else {
-            String[] splitDomains = allDomains.split(",");
-            String[] splitEmail = email.split("@");
-            for (String domain : splitDomains) {
-                if (domain.contains(splitEmail[1])) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return domainPolicy.allowsEmail(email);
     }
 
     public static void addSupportedDomainsToWorkspace(String email, List<String> supportedDomainsForWorkspace,
@@ -86,43 +59,79 @@ public final class CommonUtils {
         }
     }
 
+    /**
+     * Adds the email domain to the workspace supported domains through the cached view, which skips the write
+     * when the domain is already supported and reloads the view after it.
+     *
+     * @param email
+     * @param workspaceDomains
+     * @throws AuthorizationException
+     */
+    public static void addSupportedDomainsToWorkspace(String email, WorkspaceDomains workspaceDomains)
+            throws AuthorizationException {
+        if (email != null && workspaceDomains != null) {
+            String[] splitEmail = email.split("@");
+            if (splitEmail.length > 1) {
+                workspaceDomains.add(splitEmail[1]);
+            }
+        }
+    }
+
+    /**
+     * Returns the current time in GMT as "yyyy-MM-dd'T'HH:mm:ss Z". The text only changes once a second, so the
+     * last formatted second is kept and reused by every caller within that second.
+     *
+     * @return String
+     */
     public static String getDate() {
-        DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss Z");
-        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
-        return dateFormat.format(Calendar.getInstance().getTime());
+        return getDate(System.currentTimeMillis());
     }
 
+    static String getDate(long epochMillis) {
+        long epochSecond = Math.floorDiv(epochMillis, 1000);
+        FormattedDate cached = lastDate;
+        if (cached.epochSecond == epochSecond) {
+            return cached.text;
+        }
+        String text = DATE_FORMATTER.format(Instant.ofEpochSecond(epochSecond));
+        lastDate = new FormattedDate(epochSecond, text);
+        return text;
+    }
+
+    /**
+     * Returns true if the email address is valid. Unlike EmailAddress.tryParse surrounding whitespace is not
+     * accepted; letters of either case are.
+     *
+     * @param email
+     * @return boolean
+     */
     public static boolean isValidEmail(String email) {
-        //https://www.geeksforgeeks.org/check-email-address-valid-not-java/
-        if (email == null) {
+        if (email == null || email.isEmpty()
+                || Character.isWhitespace(email.charAt(0))
+                || Character.isWhitespace(email.charAt(email.length() - 1))) {
             return false;
         }
-        String emailRegex = "^[a-zA-Z0-9_+&*-]+(?:\\." +
-                "[a-zA-Z0-9_+&*-]+)*@" +
-                "(?:[a-zA-Z0-9-]+\\.)+[a-z" +
-                "A-Z]{2,7}$";
-        Pattern pat = Pattern.compile(emailRegex);
-        return pat.matcher(email).matches();
+        return EmailAddress.tryParse(email) != null;
     }
 
-    public static void validateDomains(Object supportedDomains) {
+    /**
+     * Validates a comma separated list of supported domains and reports every invalid domain at once.
+     *
+     * @param supportedDomains
+     * @return SupportedDomains
+     */
+    public static SupportedDomains validateDomains(Object supportedDomains) {
         if (!(supportedDomains instanceof String)) {
             throw new IllegalArgumentException("Input is not string type:" + supportedDomains);
         }
-        if (((String) supportedDomains).isEmpty()) {
+        String supportedDomainsString = (String) supportedDomains;
+        if (supportedDomainsString.isEmpty()) {
             throw new IllegalArgumentException("Supported domains list is empty.");
         }
-        String supportedDomainsString = (String) supportedDomains;
-        String[] domains = supportedDomainsString.split(",");
-        if (domains.length == 0) {
+        if (supportedDomainsString.replace(',', ' ').isBlank()) {
             throw new IllegalArgumentException("List of domain is empty.");
         }
-        for (String domain : domains) {
-            String trimmedDomain = domain.trim();
-            if (!trimmedDomain.equalsIgnoreCase("all") && !CommonUtils.isValidDomain(trimmedDomain)) {
-                throw new IllegalArgumentException("Invalid domain name:" + domain);
-            }
-        }
+        return SupportedDomains.validate(supportedDomainsString).requireValid();
     }
 
     public static void validateInputParams(Map<String, Object> invokerAttributes, Set<String> requiredInputs,
@@ -148,19 +157,28 @@ public final class CommonUtils {
 
     public static void validateIfSupportedDomain(String email, String allDomains, Object supportedDomains) {
         if (!isValidEmail(email)) {
-            throw new IllegalArgumentException("Not valid email address: " + email);
+            throw new ValidationException("Not valid email address: " + email);
         }
         if (!supportedDomains.toString().isEmpty()) {
-            boolean isSupportedFromExtension = CommonUtils
-                    .isEmailDomainPresentInSupportedWorkspaceDomains(email,
-                            supportedDomains.toString());
-            boolean isSupportedFromWorkSpace =
-                    isEmailDomainPresentInSupportedWorkspaceDomains(email,
-                            allDomains);
-            if (!isSupportedFromExtension && !isSupportedFromWorkSpace) {
-                throw new IllegalArgumentException(
-                        "Domain " + email.substring(email.indexOf("@") + 1) + " is not supported.");
-            }
+            validateSupportedDomain(email, DomainPolicy.of(allDomains), DomainPolicy.of(supportedDomains.toString()));
+        }
+    }
+
+    /**
+     * Throws IllegalArgumentException unless the email domain is allowed by the extension or the workspace policy.
+     *
+     * @param email
+     * @param workspacePolicy
+     * @param extensionPolicy
+     */
+    public static void validateSupportedDomain(String email, DomainPolicy workspacePolicy,
+            DomainPolicy extensionPolicy) {
+        if (!isValidEmail(email)) {
+            throw new ValidationException("Not valid email address: " + email);
+        }
+        if (!extensionPolicy.allowsEmail(email) && !workspacePolicy.allowsEmail(email)) {
+            throw new ValidationException(
+                    "Domain " + email.substring(email.indexOf("@") + 1) + " is not supported.");
         }
     }
 
@@ -170,22 +188,34 @@ public final class CommonUtils {
             throw new IllegalArgumentException("WorkspaceId not found.");
         }
         if (!isValidEmail(email)) {
-            throw new IllegalArgumentException("Not valid email address: " + email);
+            throw new ValidationException("Not valid email address: " + email);
         }
         if (!allowAutoUserCreationBool) {
             boolean isEmailDomainPresent =
                     isEmailDomainPresentInSupportedWorkspaceDomains(email, supportedDomain);
             if (!isEmailDomainPresent) {
-                throw new IllegalArgumentException(
+                throw new ValidationException(
                         "ALLOW_AUTO_PERSON_CREATION is not enabled and domain for email " + email +
                                 " is not supported in workspace.");
             }
 
             if (accountManager.lookupAccount(email) == null) {
-                throw new IllegalArgumentException(
+                throw new ValidationException(
                         "ALLOW_AUTO_PERSON_CREATION is not enabled. Can't add new user with email :" + email);
             }
         }
     }
 
+    private static final class FormattedDate {
+
+        private final long epochSecond;
+        private final String text;
+
+        private FormattedDate(long epochSecond, String text) {
+            this.epochSecond = epochSecond;
+            this.text = text;
+        }
+
+    }
+
 }
@@ -0,0 +1,188 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiled set of allowed email domains.
+ * A rule is either a domain name, which matches exactly that domain, or "*.domain", which matches every
+ * subdomain of it. Exact rules are kept in a hash set; subdomain rules in a trie of reversed domain labels,
+ * so a lookup walks the labels of the email domain once from the top level domain down.
+ * An empty rule list, "*" or "All" allows every domain.
+ */
+public final class DomainPolicy {
+
+    public static final String WILDCARD_PREFIX = "*.";
+    public static final DomainPolicy ALLOW_ALL = new DomainPolicy(true, Set.of(), new Node());
+
+    private static final int MAX_CACHED_POLICIES = 64;
+    private static final ConcurrentMap<String, DomainPolicy> CACHE = new ConcurrentHashMap<>();
+
+    private final boolean allowAll;
+    private final Set<String> domains;
+    private final Node subdomains;
+
+    private DomainPolicy(boolean allowAll, Set<String> domains, Node subdomains) {
+        this.allowAll = allowAll;
+        this.domains = domains;
+        this.subdomains = subdomains;
+    }
+
+    /**
+     * Compiles a comma separated list of domain rules. Compiled policies of recently used lists are reused.
+     *
+     * @param rules
+     * @return DomainPolicy
+     */
+    public static DomainPolicy of(String rules) {
+        if (rules == null || rules.isBlank()) {
+            return ALLOW_ALL;
+        }
+        DomainPolicy policy = CACHE.get(rules);
+        if (policy == null) {
+            policy = compile(Arrays.asList(rules.split(",")));
+            if (CACHE.size() >= MAX_CACHED_POLICIES) {
+                CACHE.clear();
+            }
+            CACHE.put(rules, policy);
+        }
+        return policy;
+    }
+
+    /**
+     * Compiles the given domain rules.
+     *
+     * @param rules
+     * @return DomainPolicy
+     */
+    public static DomainPolicy compile(Collection<String> rules) {
+        if (rules == null) {
+            return ALLOW_ALL;
+        }
+        Set<String> domains = new HashSet<>();
+        Node subdomains = new Node();
+        boolean empty = true;
+        for (String rule : rules) {
+            String normalized = normalize(rule);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (normalized.equals("*") || normalized.equals("all")) {
+                return ALLOW_ALL;
+            }
+            empty = false;
+            if (normalized.startsWith(WILDCARD_PREFIX)) {
+                subdomains.add(normalized.substring(WILDCARD_PREFIX.length()));
+            } else {
+                domains.add(normalized);
+            }
+        }
+        return empty ? ALLOW_ALL : new DomainPolicy(false, Set.copyOf(domains), subdomains);
+    }
+
+    public boolean isAllowAll() {
+        return allowAll;
+    }
+
+    /**
+     * Returns true if the domain part of the email address is allowed.
+     *
+     * @param email
+     * @return boolean
+     */
+    public boolean allowsEmail(String email) {
+        if (email == null) {
+            return false;
+        }
+        int at = email.lastIndexOf('@');
+        return at >= 0 && allowsDomain(email.substring(at + 1));
+    }
+
+    public boolean allowsEmail(EmailAddress email) {
+        return email != null && allowsDomain(email.getDomainName());
+    }
+
+    public boolean allowsDomain(String domain) {
+        if (allowAll) {
+            return true;
+        }
+        if (domain == null) {
+            return false;
+        }
+        String normalized = normalize(domain);
+        return domains.contains(normalized) || subdomains.matches(normalized);
+    }
+
+    @Override
+    public String toString() {
+        return allowAll ? "DomainPolicy{all}" : "DomainPolicy{domains=" + domains + ", subdomains=" + subdomains + '}';
+    }
+
+    private static String normalize(String domain) {
+        String normalized = domain.strip().toLowerCase(Locale.ROOT);
+        return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+
+    /**
+     * Trie node keyed by domain label, walked from the top level domain down.
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean subdomainsAllowed;
+
+        private void add(String domain) {
+            Node node = this;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.computeIfAbsent(domain.substring(start, end), label -> new Node());
+                end = start - 1;
+            }
+            node.subdomainsAllowed = true;
+        }
+
+        private boolean matches(String domain) {
+            Node node = this;
+            int end = domain.length();
+            while (end > 0) {
+                int start = domain.lastIndexOf('.', end - 1) + 1;
+                node = node.children.get(domain.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                end = start - 1;
+                if (node.subdomainsAllowed && end > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return children.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+/**
+ * Parsed, normalized email address.
+ * Parsing is a single pass over the input that skips surrounding whitespace, lowercases ASCII letters and checks
+ * the same grammar as the former regular expression: dot separated local part segments of letters, digits and
+ * {@code _+&*-}, one "@", then at least two dot separated domain labels of letters, digits and "-" where the top level
+ * domain has 2 to 7 letters. Parse once per request and pass the value on instead of re-validating the string.
+ */
+public final class EmailAddress {
+
+    private static final int MIN_TOP_LEVEL_DOMAIN_LENGTH = 2;
+    private static final int MAX_TOP_LEVEL_DOMAIN_LENGTH = 7;
+
+    private final String normalized;
+    private final String localPart;
+    private final String domainName;
+
+    private EmailAddress(String normalized, int at) {
+        this.normalized = normalized;
+        this.localPart = normalized.substring(0, at);
+        this.domainName = normalized.substring(at + 1);
+    }
+
+    /**
+     * Parses the email address, throwing ValidationException if it is not valid.
+     *
+     * @param emailAddress
+     * @return EmailAddress
+     */
+    public static EmailAddress parse(String emailAddress) {
+        EmailAddress parsed = tryParse(emailAddress);
+        if (parsed == null) {
+            throw new ValidationException("Email address '" + emailAddress + "' is not valid.");
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses the email address.
+     *
+     * @param emailAddress
+     * @return EmailAddress or null if the email address is not valid
+     */
+    public static EmailAddress tryParse(String emailAddress) {
+        if (emailAddress == null) {
+            return null;
+        }
+        int begin = 0;
+        int end = emailAddress.length();
+        while (begin < end && Character.isWhitespace(emailAddress.charAt(begin))) {
+            begin++;
+        }
+        while (end > begin && Character.isWhitespace(emailAddress.charAt(end - 1))) {
+            end--;
+        }
+        int at = -1;
+        int partLength = 0;
+        int domainDots = 0;
+        boolean lettersOnly = true;
+        boolean upperCase = false;
+        for (int i = begin; i < end; i++) {
+            char c = emailAddress.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                upperCase = true;
+                partLength++;
+            } else if (c >= 'a' && c <= 'z') {
+                partLength++;
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                lettersOnly = false;
+                partLength++;
+            } else if (c == '.') {
+                if (partLength == 0) {
+                    return null;
+                }
+                if (at >= 0) {
+                    domainDots++;
+                }
+                partLength = 0;
+                lettersOnly = true;
+            } else if (c == '@') {
+                if (at >= 0 || partLength == 0) {
+                    return null;
+                }
+                at = i;
+                partLength = 0;
+                lettersOnly = true;
+            } else if (at < 0 && (c == '_' || c == '+' || c == '&' || c == '*')) {
+                partLength++;
+            } else {
+                return null;
+            }
+        }
+        if (at < 0 || domainDots == 0 || !lettersOnly
+                || partLength < MIN_TOP_LEVEL_DOMAIN_LENGTH || partLength > MAX_TOP_LEVEL_DOMAIN_LENGTH) {
+            return null;
+        }
+        return new EmailAddress(normalize(emailAddress, begin, end, upperCase), at - begin);
+    }
+
+    public String getLocalPart() {
+        return localPart;
+    }
+
+    public String getDomainName() {
+        return domainName;
+    }
+
+    public String getNormalized() {
+        return normalized;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof EmailAddress && normalized.equals(((EmailAddress) other).normalized);
+    }
+
+    @Override
+    public int hashCode() {
+        return normalized.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+
+    private static String normalize(String emailAddress, int begin, int end, boolean upperCase) {
+        if (!upperCase) {
+            return emailAddress.substring(begin, end);
+        }
+        char[] chars = new char[end - begin];
+        for (int i = begin; i < end; i++) {
+            char c = emailAddress.charAt(i);
+            chars[i - begin] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return new String(chars);
+    }
+
+}
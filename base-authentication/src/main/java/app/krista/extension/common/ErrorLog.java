@@ -0,0 +1,105 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limited, sampled error log writing one key=value line per error.
+ * Errors are grouped by status code and exception type. Within every window the first errors of a group are
+ * written, after that only one in the sample rate; the next written line reports how many were skipped.
+ * Stack traces are written for server errors only.
+ */
+public final class ErrorLog {
+
+    private final long windowNanos;
+    private final int burst;
+    private final int sampleRate;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<>();
+
+    private static final class Group {
+
+        private long windowStart;
+        private long count;
+        private long suppressed;
+
+        private Group(long windowStart) {
+            this.windowStart = windowStart;
+        }
+
+    }
+
+    public ErrorLog() {
+        this(Duration.ofMinutes(1), 5, 100, System::nanoTime);
+    }
+
+    public ErrorLog(Duration window, int burst, int sampleRate, LongSupplier nanoClock) {
+        if (burst < 0 || sampleRate < 1) {
+            throw new IllegalArgumentException("Invalid error log sampling configuration.");
+        }
+        this.windowNanos = window.toNanos();
+        this.burst = burst;
+        this.sampleRate = sampleRate;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Writes the error unless its group is over its budget for the current window.
+     *
+     * @param statusCode
+     * @param exception
+     * @param message
+     * @return String the written line, null if the error was skipped
+     */
+    public String log(int statusCode, Throwable exception, String message) {
+        String type = exception.getClass().getSimpleName();
+        Group group = groups.computeIfAbsent(statusCode + type, key -> new Group(nanoClock.getAsLong()));
+        long suppressed;
+        synchronized (group) {
+            long now = nanoClock.getAsLong();
+            if (now - group.windowStart >= windowNanos) {
+                group.windowStart = now;
+                group.count = 0;
+            }
+            long count = ++group.count;
+            if (count > burst && (count - burst) % sampleRate != 0) {
+                group.suppressed++;
+                return null;
+            }
+            suppressed = group.suppressed;
+            group.suppressed = 0;
+        }
+        String line = "level=" + (statusCode >= 500 ? "ERROR" : "WARN") + " status=" + statusCode + " exception="
+                + type + " suppressed=" + suppressed + " message=\"" + escape(message) + '"';
+        System.err.println(line);
+        if (statusCode >= 500) {
+            exception.printStackTrace();
+        }
+        return line;
+    }
+
+    private static String escape(String message) {
+        return message.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+}
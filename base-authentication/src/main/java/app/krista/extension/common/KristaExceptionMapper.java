@@ -18,28 +18,56 @@
 
 package app.krista.extension.common;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 
+/**
+ * Maps exceptions to JSON error responses.
+ * Error payloads are reused for repeated messages and errors are written through a sampled {@link ErrorLog},
+ * so a storm of rejected requests costs neither stack traces nor a stderr line each.
+ */
 public class KristaExceptionMapper implements ExceptionMapper<Exception> {
 
+    private static final String DEFAULT_MESSAGE = "Authentication failure";
+    private static final String NOT_FOUND_MESSAGE = "Page not found.";
+    private static final int MAX_CACHED_ERRORS = 256;
+
     private final String extensionType;
+    private final ErrorLog errorLog;
+    private final ConcurrentMap<String, KristaError> errors;
 
     public KristaExceptionMapper(String extensionType) {
+        this(extensionType, new ErrorLog());
+    }
+
+    public KristaExceptionMapper(String extensionType, ErrorLog errorLog) {
         this.extensionType = extensionType;
+        this.errorLog = errorLog;
+        this.errors = getDefaultErrors(extensionType);
+    }
+
+    private static ConcurrentMap<String, KristaError> getDefaultErrors(String extensionType) {
+        ConcurrentMap<String, KristaError> errors = new ConcurrentHashMap<>();
+        for (int statusCode : new int[]{400, 401, 403, 500}) {
+            errors.put(statusCode + DEFAULT_MESSAGE,
+                    new KristaError(DEFAULT_MESSAGE, extensionType + "- " + statusCode));
+        }
+        return errors;
     }
 
     @Override
     public Response toResponse(Exception exception) {
-        String message = exception.getMessage() == null ? "Authentication failure" : exception.getMessage();
-        exception.printStackTrace();
+        String message = exception.getMessage() == null ? DEFAULT_MESSAGE : exception.getMessage();
         int statusCode = 500;
         if (exception instanceof NotFoundException) {
             statusCode = 404;
-            return Response.status(statusCode).entity("Page not found.").build();
+            errorLog.log(statusCode, exception, message);
+            return Response.status(statusCode).entity(NOT_FOUND_MESSAGE).build();
         }
         if (exception instanceof IllegalArgumentException) {
             statusCode = 400;
@@ -47,8 +75,21 @@ public class KristaExceptionMapper implements ExceptionMapper<Exception> {
         if (exception instanceof WebApplicationException) {
             statusCode = ((WebApplicationException) exception).getResponse().getStatus();
         }
+        errorLog.log(statusCode, exception, message);
         return Response.status(statusCode).type(MediaType.APPLICATION_JSON)
-                .entity(new KristaError(message, extensionType + "- " + statusCode)).build();
+                .entity(getError(message, statusCode)).build();
+    }
+
+    final KristaError getError(String message, int statusCode) {
+        String key = statusCode + message;
+        KristaError error = errors.get(key);
+        if (error == null) {
+            error = new KristaError(message, extensionType + "- " + statusCode);
+            if (errors.size() < MAX_CACHED_ERRORS) {
+                errors.putIfAbsent(key, error);
+            }
+        }
+        return error;
     }
 
 }
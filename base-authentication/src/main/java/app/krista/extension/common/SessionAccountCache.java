@@ -0,0 +1,100 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, least recently used cache of client session id to the id of the account the session belongs to.
+ * Entries expire after the time to live, which bounds how long a session that was revoked elsewhere is still
+ * accepted from the cache.
+ */
+public final class SessionAccountCache {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(30);
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+
+    public SessionAccountCache() {
+        this(MAXIMUM_SIZE, TIME_TO_LIVE, System::nanoTime);
+    }
+
+    public SessionAccountCache(int maximumSize, Duration timeToLive, LongSupplier nanoClock) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SessionAccountCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached account id of the client session.
+     *
+     * @param clientSessionId
+     * @return String or null on a cache miss
+     */
+    public synchronized String getAccountId(String clientSessionId) {
+        Entry entry = entries.get(clientSessionId);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(clientSessionId);
+            return null;
+        }
+        return entry.accountId;
+    }
+
+    public synchronized void put(String clientSessionId, String accountId) {
+        entries.put(clientSessionId, new Entry(accountId, nanoClock.getAsLong() + timeToLiveNanos));
+    }
+
+    public synchronized void invalidate(String clientSessionId) {
+        entries.remove(clientSessionId);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final String accountId;
+        private final long expiresAt;
+
+        private Entry(String accountId, long expiresAt) {
+            this.accountId = accountId;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
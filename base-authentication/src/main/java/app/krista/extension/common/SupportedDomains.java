@@ -0,0 +1,191 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Validated list of supported domain rules, see DomainPolicy for the rule syntax.
+ * Validation normalizes and deduplicates the rules first, then checks every distinct rule with a single-pass
+ * scanner, in parallel for large lists, and collects all invalid rules instead of stopping at the first one.
+ * The compiled DomainPolicy of the valid rules is built along the way.
+ */
+public final class SupportedDomains {
+
+    public static final SupportedDomains ALL = new SupportedDomains(true, List.of(), List.of());
+
+    static final int PARALLEL_THRESHOLD = 2048;
+    private static final int MAX_REPORTED_INVALID_DOMAINS = 20;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MIN_TOP_LEVEL_DOMAIN_LENGTH = 2;
+    private static final int MAX_TOP_LEVEL_DOMAIN_LENGTH = 6;
+
+    private final boolean allowAll;
+    private final List<String> domainNames;
+    private final List<String> invalidDomainNames;
+    private final DomainPolicy domainPolicy;
+
+    private SupportedDomains(boolean allowAll, List<String> domainNames, List<String> invalidDomainNames) {
+        this.allowAll = allowAll;
+        this.domainNames = domainNames;
+        this.invalidDomainNames = invalidDomainNames;
+        this.domainPolicy = allowAll ? DomainPolicy.ALLOW_ALL : DomainPolicy.compile(domainNames);
+    }
+
+    /**
+     * Validates a comma separated list of domain rules.
+     *
+     * @param rules
+     * @return SupportedDomains
+     */
+    public static SupportedDomains validate(String rules) {
+        return rules == null ? ALL : validate(Arrays.asList(rules.split(",")));
+    }
+
+    /**
+     * Validates the domain rules. Blank rules are skipped; "*" or "All" allows every domain, but the other rules
+     * are still validated.
+     *
+     * @param rules
+     * @return SupportedDomains
+     */
+    public static SupportedDomains validate(Collection<String> rules) {
+        if (rules == null) {
+            return ALL;
+        }
+        boolean allowAll = false;
+        Set<String> distinctRules = new LinkedHashSet<>();
+        for (String rule : rules) {
+            String normalized = rule == null ? "" : rule.strip().toLowerCase(Locale.ROOT);
+            if (normalized.equals("*") || normalized.equals("all")) {
+                allowAll = true;
+            } else if (!normalized.isEmpty()) {
+                distinctRules.add(normalized);
+            }
+        }
+        if (distinctRules.isEmpty()) {
+            return ALL;
+        }
+        List<String> invalid = (distinctRules.size() >= PARALLEL_THRESHOLD
+                ? distinctRules.parallelStream() : distinctRules.stream())
+                .filter(rule -> !isValidRule(rule))
+                .collect(Collectors.toList());
+        if (!invalid.isEmpty()) {
+            distinctRules.removeAll(invalid);
+        }
+        return new SupportedDomains(allowAll, List.copyOf(distinctRules), List.copyOf(invalid));
+    }
+
+    /**
+     * Returns true if the domain name is dot separated labels of up to 63 letters, digits and hyphens that do
+     * not start or end with a hyphen, followed by a top level domain of 2 to 6 letters.
+     *
+     * @param domainName
+     * @return boolean
+     */
+    public static boolean isValidDomainName(String domainName) {
+        if (domainName == null) {
+            return false;
+        }
+        int labelLength = 0;
+        int dots = 0;
+        boolean lettersOnly = true;
+        char previous = '.';
+        for (int i = 0; i < domainName.length(); i++) {
+            char c = domainName.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                labelLength++;
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                if (c == '-' && previous == '.') {
+                    return false;
+                }
+                lettersOnly = false;
+                labelLength++;
+            } else if (c == '.') {
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH || previous == '-') {
+                    return false;
+                }
+                dots++;
+                labelLength = 0;
+                lettersOnly = true;
+            } else {
+                return false;
+            }
+            previous = c;
+        }
+        return dots > 0 && lettersOnly
+                && labelLength >= MIN_TOP_LEVEL_DOMAIN_LENGTH && labelLength <= MAX_TOP_LEVEL_DOMAIN_LENGTH;
+    }
+
+    private static boolean isValidRule(String rule) {
+        return isValidDomainName(rule.startsWith(DomainPolicy.WILDCARD_PREFIX)
+                ? rule.substring(DomainPolicy.WILDCARD_PREFIX.length()) : rule);
+    }
+
+    /**
+     * Throws ValidationException listing the invalid rules, if there are any.
+     *
+     * @return this
+     */
+    public SupportedDomains requireValid() {
+        if (invalidDomainNames.isEmpty()) {
+            return this;
+        }
+        StringBuilder message = new StringBuilder("Invalid domain names: ");
+        int reported = Math.min(invalidDomainNames.size(), MAX_REPORTED_INVALID_DOMAINS);
+        message.append(String.join(", ", invalidDomainNames.subList(0, reported)));
+        if (invalidDomainNames.size() > reported) {
+            message.append(" and ").append(invalidDomainNames.size() - reported).append(" more");
+        }
+        throw new ValidationException(message.append('.').toString());
+    }
+
+    public boolean isValid() {
+        return invalidDomainNames.isEmpty();
+    }
+
+    public boolean isAllowAll() {
+        return allowAll;
+    }
+
+    /**
+     * Returns the distinct, lower case valid rules in the order they were given.
+     *
+     * @return List of domain rules
+     */
+    public List<String> getDomainNames() {
+        return domainNames;
+    }
+
+    public List<String> getInvalidDomainNames() {
+        return invalidDomainNames;
+    }
+
+    /**
+     * Returns the valid rules compiled for matching.
+     *
+     * @return DomainPolicy
+     */
+    public DomainPolicy getDomainPolicy() {
+        return domainPolicy;
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import app.krista.extension.authorization.AuthorizationException;
+import app.krista.ksdk.authentication.AuthenticationSettings;
+
+/**
+ * Cached, set backed view of the workspace supported domains.
+ * The list is read from AuthenticationSettings at most once per time to live and is reloaded right after
+ * this view adds a domain, so lookups on the login path do not call the platform.
+ */
+public final class WorkspaceDomains {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    private final AuthenticationSettings authenticationSettings;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private volatile Snapshot snapshot;
+
+    public WorkspaceDomains(AuthenticationSettings authenticationSettings) {
+        this(authenticationSettings, TIME_TO_LIVE, System::nanoTime);
+    }
+
+    public WorkspaceDomains(AuthenticationSettings authenticationSettings, Duration timeToLive,
+            LongSupplier nanoClock) {
+        this.authenticationSettings = authenticationSettings;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the lower case workspace supported domains.
+     *
+     * @return Set of domain names
+     */
+    public Set<String> getDomains() {
+        return getSnapshot().domains;
+    }
+
+    /**
+     * Returns the workspace supported domains compiled for matching; an empty list allows every domain.
+     *
+     * @return DomainPolicy
+     */
+    public DomainPolicy getDomainPolicy() {
+        return getSnapshot().domainPolicy;
+    }
+
+    public boolean contains(String domain) {
+        return domain != null && getDomains().contains(domain.strip().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Adds the domain to the workspace supported domains unless it is already there.
+     *
+     * @param domain
+     * @return true if the domain was added
+     * @throws AuthorizationException
+     */
+    public boolean add(String domain) throws AuthorizationException {
+        if (contains(domain)) {
+            return false;
+        }
+        try {
+            authenticationSettings.addSupportedDomains(domain);
+        } finally {
+            invalidate();
+        }
+        return true;
+    }
+
+    /**
+     * Forces the next lookup to read the supported domains from the platform.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || nanoClock.getAsLong() - current.expiresAt >= 0) {
+            current = refresh();
+        }
+        return current;
+    }
+
+    private synchronized Snapshot refresh() {
+        Snapshot current = snapshot;
+        long now = nanoClock.getAsLong();
+        if (current != null && now - current.expiresAt < 0) {
+            return current;
+        }
+        Set<String> domains = new HashSet<>();
+        for (String domain : authenticationSettings.getSupportedDomains()) {
+            if (domain != null && !domain.isBlank()) {
+                domains.add(domain.strip().toLowerCase(Locale.ROOT));
+            }
+        }
+        current = new Snapshot(Set.copyOf(domains), DomainPolicy.compile(domains), now + timeToLiveNanos);
+        snapshot = current;
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final Set<String> domains;
+        private final DomainPolicy domainPolicy;
+        private final long expiresAt;
+
+        private Snapshot(Set<String> domains, DomainPolicy domainPolicy, long expiresAt) {
+            this.domains = domains;
+            this.domainPolicy = domainPolicy;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
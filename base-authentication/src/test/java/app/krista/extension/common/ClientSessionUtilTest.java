@@ -0,0 +1,98 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.lang.reflect.Proxy;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import app.krista.ksdk.authentication.SessionManager;
+import com.google.gson.JsonSyntaxException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientSessionUtilTest {
+
+    private long now;
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final SessionAccountCache accountIds = new SessionAccountCache(2, Duration.ofSeconds(30), () -> now);
+    private final SessionManager sessionManager = (SessionManager) Proxy.newProxyInstance(
+            SessionManager.class.getClassLoader(), new Class<?>[]{SessionManager.class}, (proxy, method, args) -> {
+                lookups.incrementAndGet();
+                return "unknown".equals(args[0]) ? null : "account-" + args[0];
+            });
+
+    @Test
+    public void readsClientSessionIdOnly() {
+        // Given
+        String context = "{\"user\":{\"roles\":[\"a\",{\"b\":1}]},\"clientSessionId\":\"s-1\",\"broken\":";
+
+        // Then
+        Assert.assertEquals("s-1", ClientSessionUtil.getClientSessionId(context));
+        Assert.assertEquals("s 1", ClientSessionUtil.getClientSessionId(
+                URLEncoder.encode("{\"clientSessionId\":\"s 1\"}", StandardCharsets.UTF_8)));
+        Assert.assertNull(ClientSessionUtil.getClientSessionId("{\"other\":\"x\"}"));
+        Assert.assertNull(ClientSessionUtil.getClientSessionId("{\"clientSessionId\":null}"));
+        Assert.assertNull(ClientSessionUtil.getClientSessionId(null));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void rejectsMalformedContext() {
+        ClientSessionUtil.getClientSessionId("[\"clientSessionId\"]");
+    }
+
+    @Test
+    public void cachesAccountIdOfSession() throws Exception {
+        // When
+        String first = ClientSessionUtil.getAuthenticatedAccountId(sessionManager,
+                "{\"clientSessionId\":\"s-1\"}", accountIds);
+        String second = ClientSessionUtil.getAuthenticatedAccountId(sessionManager,
+                "{\"clientSessionId\":\"s-1\"}", accountIds);
+
+        // Then
+        Assert.assertEquals("account-s-1", first);
+        Assert.assertEquals("account-s-1", second);
+        Assert.assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void looksUpAgainAfterTimeToLive() throws Exception {
+        // Given
+        ClientSessionUtil.getAuthenticatedAccountId(sessionManager, "{\"clientSessionId\":\"s-1\"}", accountIds);
+
+        // When
+        now += Duration.ofSeconds(31).toNanos();
+        ClientSessionUtil.getAuthenticatedAccountId(sessionManager, "{\"clientSessionId\":\"s-1\"}", accountIds);
+
+        // Then
+        Assert.assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void doesNotCacheUnknownSessions() throws Exception {
+        // When
+        ClientSessionUtil.getAuthenticatedAccountId(sessionManager, "{\"clientSessionId\":\"unknown\"}", accountIds);
+
+        // Then
+        Assert.assertEquals(0, accountIds.size());
+    }
+
+}
@@ -47,6 +47,19 @@ public class CommonUtilsTest {
 
     }
 
+    @Test
+    public void reusesDateWithinSecond() {
+        // When
+        String first = CommonUtils.getDate(1_700_000_000_000L);
+        String sameSecond = CommonUtils.getDate(1_700_000_000_999L);
+        String nextSecond = CommonUtils.getDate(1_700_000_001_000L);
+
+        // Then
+        Assert.assertEquals("2023-11-14T22:13:20 +0000", first);
+        Assert.assertSame(first, sameSecond);
+        Assert.assertEquals("2023-11-14T22:13:21 +0000", nextSecond);
+    }
+
     @Test
     public void isValidDomain() {
         // Given
@@ -108,7 +121,9 @@ public class CommonUtilsTest {
         Assert.assertTrue(correctEmailOut); //verify time separator
         Assert.assertFalse(nullOut); //verify time separator
         Assert.assertFalse(emptyOut); //verify time separator
-
+        Assert.assertTrue(CommonUtils.isValidEmail("Abc.D+e@Krista-Soft.COM"));
+        Assert.assertFalse(CommonUtils.isValidEmail(" abc@kristasoft.com"));
+        Assert.assertFalse(CommonUtils.isValidEmail("abc@kristasoft.com "));
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -143,4 +158,18 @@ public class CommonUtilsTest {
         CommonUtils.validateIfSupportedDomain(null, null, null);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void rejectsUnsupportedDomainWithoutStackTrace() {
+        try {
+            // When
+            CommonUtils.validateSupportedDomain("bob@other.com", DomainPolicy.of("example.com"),
+                    DomainPolicy.of("kristasoft.com"));
+            Assert.fail();
+        } catch (ValidationException cause) {
+            // Then
+            Assert.assertEquals("Domain other.com is not supported.", cause.getMessage());
+            Assert.assertEquals(0, cause.getStackTrace().length);
+        }
+    }
+
+}
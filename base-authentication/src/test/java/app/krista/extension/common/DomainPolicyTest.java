@@ -0,0 +1,73 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DomainPolicyTest {
+
+    @Test
+    public void matchesExactDomainsOnly() {
+        // Given
+        DomainPolicy policy = DomainPolicy.of("x.com, Example.com");
+
+        // Then
+        Assert.assertTrue(policy.allowsEmail("bob@x.com"));
+        Assert.assertTrue(policy.allowsEmail("bob@EXAMPLE.com"));
+        Assert.assertFalse(policy.allowsEmail("bob@ax.com"));
+        Assert.assertFalse(policy.allowsEmail("bob@mail.x.com"));
+        Assert.assertFalse(policy.allowsEmail("bob"));
+    }
+
+    @Test
+    public void matchesSubdomainRules() {
+        // Given
+        DomainPolicy policy = DomainPolicy.compile(List.of("*.corp.example.com", "partner.com"));
+
+        // Then
+        Assert.assertTrue(policy.allowsDomain("eu.corp.example.com"));
+        Assert.assertTrue(policy.allowsDomain("a.b.corp.example.com"));
+        Assert.assertFalse(policy.allowsDomain("corp.example.com"));
+        Assert.assertFalse(policy.allowsDomain("xcorp.example.com"));
+        Assert.assertFalse(policy.allowsDomain("example.com"));
+        Assert.assertTrue(policy.allowsDomain("partner.com"));
+    }
+
+    @Test
+    public void allowsAllForEmptyOrWildcardRules() {
+        Assert.assertTrue(DomainPolicy.of("").isAllowAll());
+        Assert.assertTrue(DomainPolicy.of(null).isAllowAll());
+        Assert.assertTrue(DomainPolicy.of("All").isAllowAll());
+        Assert.assertTrue(DomainPolicy.compile(List.of("x.com", "*")).isAllowAll());
+        Assert.assertTrue(DomainPolicy.compile(List.of()).allowsEmail("bob@anything.org"));
+    }
+
+    @Test
+    public void reusesCompiledPolicy() {
+        Assert.assertSame(DomainPolicy.of("x.com,y.com"), DomainPolicy.of("x.com,y.com"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSubstringMatch() {
+        CommonUtils.validateIfSupportedDomain("bob@ax.com", "y.com", "x.com");
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmailAddressTest {
+
+    private static final Pattern FORMER_PATTERN =
+            Pattern.compile("^[a-z0-9_+&*-]+(?:\\.[a-z0-9_+&*-]+)*@(?:[a-z0-9-]+\\.)+[a-z]{2,7}$");
+
+    @Test
+    public void parsesAndNormalizes() {
+        // When
+        EmailAddress emailAddress = EmailAddress.parse(" John.Smith+Tag@Mail.Example.COM\t");
+
+        // Then
+        Assert.assertEquals("john.smith+tag@mail.example.com", emailAddress.getNormalized());
+        Assert.assertEquals("john.smith+tag", emailAddress.getLocalPart());
+        Assert.assertEquals("mail.example.com", emailAddress.getDomainName());
+        Assert.assertEquals(EmailAddress.parse("john.smith+tag@mail.example.com"), emailAddress);
+    }
+
+    @Test
+    public void rejectsInvalidAddresses() {
+        // Given
+        List<String> invalid = List.of("", " ", "bob", "bob@", "@x.com", "bob@x", "bob@x.c", "bob@x.abcdefgh",
+                "bob@x.c0m", ".bob@x.com", "bob.@x.com", "bo..b@x.com", "bob@.x.com", "bob@x..com", "bob@x.com.",
+                "bob@x@y.com", "bo b@x.com", "bob@x_y.com", "bób@x.com", "bob@x.com\u0000");
+
+        // Then
+        for (String emailAddress : invalid) {
+            Assert.assertNull(emailAddress, EmailAddress.tryParse(emailAddress));
+        }
+        Assert.assertNull(EmailAddress.tryParse(null));
+    }
+
+    @Test
+    public void throwsValidationException() {
+        try {
+            EmailAddress.parse("bob");
+            Assert.fail();
+        } catch (ValidationException expected) {
+            Assert.assertEquals("Email address 'bob' is not valid.", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void matchesFormerPattern() {
+        // Given
+        List<String> addresses = List.of("bob@example.com", "a_b&c*d-e@x-y.z.io", "Bob@Example.Com",
+                "1@2.ab", "bob@x.abcdefg", "bob@-x.com", "bob@x.com-", "bob+@x.com", "b@x.c-m", "b@x.1m");
+
+        // Then
+        for (String emailAddress : addresses) {
+            String normalized = emailAddress.strip().toLowerCase();
+            boolean formerValid = FORMER_PATTERN.matcher(normalized).matches();
+            EmailAddress parsed = EmailAddress.tryParse(emailAddress);
+            Assert.assertEquals(emailAddress, formerValid, parsed != null);
+            if (parsed != null) {
+                Assert.assertEquals(normalized, parsed.getNormalized());
+            }
+        }
+    }
+
+}
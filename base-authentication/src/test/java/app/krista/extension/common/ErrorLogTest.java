@@ -0,0 +1,96 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ErrorLogTest {
+
+    private long now;
+    private final ErrorLog errorLog = new ErrorLog(Duration.ofMinutes(1), 2, 10, () -> now);
+
+    @Test
+    public void samplesErrorsOverBurst() {
+        // Given
+        ValidationException exception = new ValidationException("Email address 'x' is not valid.");
+        int written = 0;
+        String lastLine = null;
+
+        // When
+        for (int i = 0; i < 22; i++) {
+            String line = errorLog.log(400, exception, exception.getMessage());
+            if (line != null) {
+                written++;
+                lastLine = line;
+            }
+        }
+
+        // Then
+        Assert.assertEquals(4, written);
+        Assert.assertEquals("level=WARN status=400 exception=ValidationException suppressed=9 "
+                + "message=\"Email address 'x' is not valid.\"", lastLine);
+    }
+
+    @Test
+    public void startsNewWindow() {
+        // Given
+        IllegalStateException exception = new IllegalStateException("Failed to send \"link\"");
+        for (int i = 0; i < 5; i++) {
+            errorLog.log(500, exception, exception.getMessage());
+        }
+
+        // When
+        now += Duration.ofMinutes(1).toNanos();
+        String line = errorLog.log(500, exception, exception.getMessage());
+
+        // Then
+        Assert.assertEquals("level=ERROR status=500 exception=IllegalStateException suppressed=3 "
+                + "message=\"Failed to send \\\"link\\\"\"", line);
+    }
+
+    @Test
+    public void groupsByStatusAndType() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            errorLog.log(400, new ValidationException("invalid"), "invalid");
+        }
+
+        // When
+        String line = errorLog.log(404, new ValidationException("missing"), "missing");
+
+        // Then
+        Assert.assertNotNull(line);
+    }
+
+    @Test
+    public void reusesErrorPayloads() {
+        // Given
+        KristaExceptionMapper mapper = new KristaExceptionMapper("Email Authentication", errorLog);
+
+        // When
+        KristaError error = mapper.getError("Missing session id.", 400);
+
+        // Then
+        Assert.assertSame(error, mapper.getError("Missing session id.", 400));
+        Assert.assertEquals("Email Authentication- 400", error.getKristaErrorCode());
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extension.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SupportedDomainsTest {
+
+    private static final Pattern FORMER_PATTERN = Pattern.compile("^((?!-)[A-Za-z0-9-]{1,63}(?<!-)\\.)+[A-Za-z]{2,6}");
+
+    @Test
+    public void deduplicatesAndCompilesPolicy() {
+        // When
+        SupportedDomains domains = SupportedDomains.validate(" X.com, *.corp.example.com,x.com,, partner.io ");
+
+        // Then
+        Assert.assertTrue(domains.isValid());
+        Assert.assertFalse(domains.isAllowAll());
+        Assert.assertEquals(List.of("x.com", "*.corp.example.com", "partner.io"), domains.getDomainNames());
+        Assert.assertTrue(domains.getDomainPolicy().allowsDomain("eu.corp.example.com"));
+        Assert.assertFalse(domains.getDomainPolicy().allowsDomain("example.com"));
+    }
+
+    @Test
+    public void reportsAllInvalidDomains() {
+        // Given
+        SupportedDomains domains = SupportedDomains.validate(List.of("x.com", "bad_domain", "-x.com", "all", "y"));
+
+        // When
+        try {
+            domains.requireValid();
+            Assert.fail();
+        } catch (ValidationException expected) {
+            // Then
+            Assert.assertEquals("Invalid domain names: bad_domain, -x.com, y.", expected.getMessage());
+        }
+        Assert.assertTrue(domains.isAllowAll());
+        Assert.assertEquals(List.of("x.com"), domains.getDomainNames());
+    }
+
+    @Test
+    public void validatesLargeListsInParallel() {
+        // Given
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < SupportedDomains.PARALLEL_THRESHOLD * 2; i++) {
+            rules.add("tenant-" + i + ".example.com");
+            rules.add("Tenant-" + i + ".example.com");
+        }
+        rules.add("broken..com");
+        rules.add("also bad.com");
+
+        // When
+        SupportedDomains domains = SupportedDomains.validate(rules);
+
+        // Then
+        Assert.assertEquals(SupportedDomains.PARALLEL_THRESHOLD * 2, domains.getDomainNames().size());
+        Assert.assertEquals(List.of("broken..com", "also bad.com"), domains.getInvalidDomainNames());
+        Assert.assertTrue(domains.getDomainPolicy().allowsEmail("bob@tenant-7.example.com"));
+    }
+
+    @Test
+    public void matchesFormerPattern() {
+        // Given
+        String longLabel = "a".repeat(63);
+        List<String> domainNames = List.of("kristasoft.com", "a.b.c.io", "x-y.co", "1.ab", "x.abcdef", "x.abcdefg",
+                "x.a", "x.c0m", "-x.com", "x-.com", "x.-y.com", ".x.com", "x..com", "x.com.", "com", "",
+                longLabel + ".com", longLabel + "a.com", "a%b.com", "X.COM");
+
+        // Then
+        for (String domainName : domainNames) {
+            Assert.assertEquals(domainName, FORMER_PATTERN.matcher(domainName).matches(),
+                    SupportedDomains.isValidDomainName(domainName));
+        }
+    }
+
+}
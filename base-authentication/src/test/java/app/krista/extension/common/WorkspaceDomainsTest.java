@@ -0,0 +1,85 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extension.common;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import app.krista.ksdk.authentication.AuthenticationSettings;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkspaceDomainsTest {
+
+    private long now;
+    private int reads;
+    private int writes;
+    private final List<String> supportedDomains = new ArrayList<>(List.of("Example.com"));
+    private final WorkspaceDomains workspaceDomains = new WorkspaceDomains(
+            (AuthenticationSettings) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{AuthenticationSettings.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getSupportedDomains":
+                                reads++;
+                                return new ArrayList<>(supportedDomains);
+                            case "addSupportedDomains":
+                                writes++;
+                                supportedDomains.addAll(Arrays.asList((String[]) args[0]));
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }), Duration.ofMinutes(10), () -> now);
+
+    @Test
+    public void readsPlatformOncePerTimeToLive() {
+        // When
+        boolean contains = workspaceDomains.contains("example.com");
+        workspaceDomains.getDomainPolicy();
+        now += Duration.ofMinutes(11).toNanos();
+        workspaceDomains.getDomains();
+
+        // Then
+        Assert.assertTrue(contains);
+        Assert.assertEquals(2, reads);
+    }
+
+    @Test
+    public void skipsWriteForKnownDomain() {
+        // When
+        CommonUtils.addSupportedDomainsToWorkspace("bob@EXAMPLE.com", workspaceDomains);
+
+        // Then
+        Assert.assertEquals(0, writes);
+    }
+
+    @Test
+    public void reloadsAfterAddingDomain() {
+        // When
+        CommonUtils.addSupportedDomainsToWorkspace("bob@partner.com", workspaceDomains);
+
+        // Then
+        Assert.assertEquals(1, writes);
+        Assert.assertTrue(workspaceDomains.getDomainPolicy().allowsEmail("alice@partner.com"));
+        Assert.assertEquals(2, reads);
+    }
+
+}
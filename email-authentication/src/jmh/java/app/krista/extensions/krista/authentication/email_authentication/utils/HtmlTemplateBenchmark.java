@@ -0,0 +1,79 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the former read-and-replace rendering of login.html with the compiled template.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HtmlTemplateBenchmark {
+
+    private final Map<String, String> values = Map.of("__originalUrl", "/app/home?tab=1&view=2",
+            "__error", "Email is not valid.");
+    private HtmlTemplate template;
+
+    @Setup
+    public void setUp() {
+        template = HtmlTemplate.get(getClass().getClassLoader(), "login.html");
+    }
+
+    @Benchmark
+    public byte[] readAndReplace() throws IOException {
+        try (InputStream resourceAsStream = getClass().getClassLoader().getResourceAsStream("login.html")) {
+            String page = new String(resourceAsStream.readAllBytes(), StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                page = page.replace(entry.getKey(), entry.getValue());
+            }
+            return page.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void compiledTemplate(Blackhole blackhole) throws IOException {
+        template.render(values, new OutputStream() {
+            @Override
+            public void write(int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                blackhole.consume(b);
+            }
+        });
+    }
+
+}
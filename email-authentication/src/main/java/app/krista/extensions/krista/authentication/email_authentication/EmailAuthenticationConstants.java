@@ -35,6 +35,9 @@ public final class EmailAuthenticationConstants {
     public static final String SMTP_PASSWORD = "Sender Password";
     public static final String SMTP_HOST = "SMTP Host";
     public static final String SMTP_PORT = "SMTP Port";
+    public static final String ASYNC_LOGIN = "Asynchronous Login";
+    public static final String TRUSTED_PROXIES = "Trusted Proxies";
+    public static final String METRICS_TOKEN = "Metrics Token";
     public static final String AUTHENTICATION_TYPE = "Email Authentication";
 
     public static final Gson GSON = new Gson();
@@ -22,10 +22,14 @@ import java.util.Map;
 import javax.inject.Inject;
 import app.krista.extension.authorization.RequestAuthenticator;
 import app.krista.extension.impl.anno.*;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributes;
 import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
 import app.krista.extensions.krista.authentication.email_authentication.impl.LocationProvider;
+import app.krista.extensions.krista.authentication.email_authentication.impl.RoleIndex;
 import app.krista.extensions.krista.authentication.email_authentication.impl.SessionManager;
 import app.krista.extensions.krista.authentication.email_authentication.mail.EmailConfiguration;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatcher;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
 import app.krista.ksdk.context.AuthorizationContext;
 
 @Field(name = EmailAuthenticationConstants.SUPPORTED_DOMAINS, type = "Text") // Studio doesn't support Text[]
@@ -37,8 +41,11 @@ import app.krista.ksdk.context.AuthorizationContext;
 @Field(name = EmailAuthenticationConstants.SMTP_PASSWORD, type = "Text", attributes = @Attribute(name = "isSecured", value = "true"))
 @Field(name = EmailAuthenticationConstants.SMTP_HOST, type = "Text")
 @Field(name = EmailAuthenticationConstants.SMTP_PORT, type = "Text")
+@Field(name = EmailAuthenticationConstants.ASYNC_LOGIN, type = "Switch")
+@Field(name = EmailAuthenticationConstants.TRUSTED_PROXIES, type = "Text")
+@Field(name = EmailAuthenticationConstants.METRICS_TOKEN, type = "Text",
+        attributes = @Attribute(name = "isSecured", value = "true"))
 @Java(version = Java.Version.JAVA_21)
-@StaticResource(path = "docs", file = "docs")
 @Extension(version = "3.5.7", name = "Email Authentication",
         implementingDomainIds = "catEntryDomain_db053e8f-a194-4dde-aa6f-701ef7a6b3a7", jaxrsId = "authn",
         requireWorkspaceAdminRights = true)
@@ -49,17 +56,23 @@ import app.krista.ksdk.context.AuthorizationContext;
         ecosystemVersion = "3e7e09ed-688f-41fa-ab7c-ff879e750011")
 public class EmailAuthenticationExtension {
 
-    private static final Map<String, String> CUSTOM_TABS = Map.of("Documentation", "static/docs");
+    private static final Map<String, String> CUSTOM_TABS = Map.of("Documentation", "authn/docs");
 
     private final RequestAuthenticator requestAuthenticator;
     private EmailInvokerAttributesProvider provider;
+    private EmailDispatcher emailDispatcher;
+    private RoleIndex roleIndex;
 
     @Inject
     public EmailAuthenticationExtension(LocationProvider locationProvider,
             AuthorizationContext authorizationContext, SessionManager sessionManager,
-            EmailInvokerAttributesProvider provider) {
-        this(new EmailAuthenticationRequestAuthenticator(locationProvider, authorizationContext, sessionManager));
+            EmailInvokerAttributesProvider provider, EmailDispatcher emailDispatcher, RoleIndex roleIndex,
+            LatencyMetrics latencyMetrics) {
+        this(new EmailAuthenticationRequestAuthenticator(locationProvider, authorizationContext, sessionManager,
+                latencyMetrics));
         this.provider = provider;
+        this.emailDispatcher = emailDispatcher;
+        this.roleIndex = roleIndex;
     }
 
     public EmailAuthenticationExtension(RequestAuthenticator requestAuthenticator) {
@@ -84,11 +97,18 @@ public class EmailAuthenticationExtension {
         if (configuration.isUsingDefaultMailServer()) {
             throw new IllegalArgumentException("Default mail server not yet supported");
         }
+        EmailInvokerAttributes.parseSupportedDomains(attributes);
     }
 
     @InvokerRequest(InvokerRequest.Type.INVOKER_UPDATED)
     public void invokerUpdated(Map<String, Object> old, Map<String, Object> newA) {
-        provider.updateAttributes();
+        if (newA != null) {
+            provider.updateAttributes(newA);
+        } else {
+            provider.updateAttributes();
+        }
+        emailDispatcher.reload();
+        roleIndex.invalidate();
     }
 
     @InvokerRequest(InvokerRequest.Type.TEST_CONNECTION)
@@ -36,6 +36,7 @@ import app.krista.extension.request.protos.http.HttpResponse;
 import app.krista.extensions.krista.authentication.email_authentication.impl.LocationProvider;
 import app.krista.extensions.krista.authentication.email_authentication.impl.SessionManager;
 import app.krista.extensions.krista.authentication.email_authentication.utils.Cookies;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
 import app.krista.ksdk.context.AuthorizationContext;
 import app.krista.model.field.NamedField;
 
@@ -44,14 +45,17 @@ public class EmailAuthenticationRequestAuthenticator implements RequestAuthentic
     private final LocationProvider locationProvider;
     private final AuthorizationContext authorizationContext;
     private final SessionManager sessionManager;
+    private final LatencyMetrics latencyMetrics;
 
     @Inject
     public EmailAuthenticationRequestAuthenticator(LocationProvider locationProvider,
             AuthorizationContext authorizationContext,
-            SessionManager sessionManager) {
+            SessionManager sessionManager,
+            LatencyMetrics latencyMetrics) {
         this.locationProvider = locationProvider;
         this.authorizationContext = authorizationContext;
         this.sessionManager = sessionManager;
+        this.latencyMetrics = latencyMetrics;
     }
 
     @Override
@@ -69,7 +73,11 @@ public class EmailAuthenticationRequestAuthenticator implements RequestAuthentic
         if (!(protoRequest instanceof HttpRequest)) {
             return null;
         }
-        HttpRequest httpRequest = (HttpRequest) protoRequest;
+        return latencyMetrics.time(LatencyMetrics.AUTHENTICATOR,
+                () -> getAuthenticatedAccountId((HttpRequest) protoRequest));
+    }
+
+    private String getAuthenticatedAccountId(HttpRequest httpRequest) {
         try {
             String sessionId = Cookies.getCookie(httpRequest, EmailAuthenticationConstants.X_KRISTA_SESSION_ID);
             String accountId;
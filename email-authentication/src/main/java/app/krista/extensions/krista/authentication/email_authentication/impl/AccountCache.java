@@ -0,0 +1,108 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.impl;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+import app.krista.extension.common.EmailAddress;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Bounded, least recently used cache of normalized email address to the id of the account provisioned for it,
+ * together with the role names the account was given. Entries expire after the time to live.
+ */
+@Service
+public final class AccountCache {
+
+    private static final int MAXIMUM_SIZE = 10_000;
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(10);
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+
+    public AccountCache() {
+        this(MAXIMUM_SIZE, TIME_TO_LIVE, System::nanoTime);
+    }
+
+    public AccountCache(int maximumSize, Duration timeToLive, LongSupplier nanoClock) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AccountCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached account id if the account was provisioned with at least the given role names.
+     *
+     * @param emailAddress
+     * @param roleNames
+     * @return String or null on a cache miss
+     */
+    public synchronized String getAccountId(EmailAddress emailAddress, Collection<String> roleNames) {
+        String key = emailAddress.getNormalized();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.expiresAt >= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.roleNames.containsAll(roleNames) ? entry.accountId : null;
+    }
+
+    public synchronized void put(EmailAddress emailAddress, String accountId, Collection<String> roleNames) {
+        entries.put(emailAddress.getNormalized(),
+                new Entry(accountId, Set.copyOf(roleNames), nanoClock.getAsLong() + timeToLiveNanos));
+    }
+
+    public synchronized void invalidate(EmailAddress emailAddress) {
+        entries.remove(emailAddress.getNormalized());
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final String accountId;
+        private final Set<String> roleNames;
+        private final long expiresAt;
+
+        private Entry(String accountId, Set<String> roleNames, long expiresAt) {
+            this.accountId = accountId;
+            this.roleNames = roleNames;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
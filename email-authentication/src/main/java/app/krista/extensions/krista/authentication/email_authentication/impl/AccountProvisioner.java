@@ -22,13 +22,13 @@ import java.util.*;
 import javax.inject.Inject;
 import app.krista.extension.authorization.AuthorizationException;
 import app.krista.extension.common.CommonUtils;
-import app.krista.extensions.krista.authentication.email_authentication.utils.EmailAddresses;
+import app.krista.extension.common.EmailAddress;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import app.krista.extensions.krista.authentication.email_authentication.utils.SingleFlight;
 import app.krista.ksdk.accounts.Account;
 import app.krista.ksdk.accounts.AccountManager;
 import app.krista.ksdk.accounts.ModifiableAccount;
-import app.krista.ksdk.authorization.ModifiableRole;
 import app.krista.ksdk.authorization.Role;
-import app.krista.ksdk.authorization.RoleManager;
 import org.jvnet.hk2.annotations.Service;
 
 /**
@@ -38,63 +38,119 @@ import org.jvnet.hk2.annotations.Service;
 public final class AccountProvisioner {
 
     private final AccountManager accountManager;
-    private final RoleManager roleManager;
+    private final RoleIndex roleIndex;
+    private final AccountCache accountCache;
+    private final LatencyMetrics latencyMetrics;
+    private final SingleFlight<String, Account> provisionFlights = new SingleFlight<>();
 
     @Inject
-    public AccountProvisioner(AccountManager accountManager, RoleManager roleManager) {
+    public AccountProvisioner(AccountManager accountManager, RoleIndex roleIndex, AccountCache accountCache,
+            LatencyMetrics latencyMetrics) {
         this.accountManager = accountManager;
-        this.roleManager = roleManager;
+        this.roleIndex = roleIndex;
+        this.accountCache = accountCache;
+        this.latencyMetrics = latencyMetrics;
     }
 
     /**
-     * Lookup account with given email and roleIds if not found create one.
+     * Lookup account with given email and role names if not found create one.
      *
      * @param emailAddress
-     * @param roleIds
+     * @param roleNames
      * @return Account
      */
-    public Account provisionAccount(String emailAddress, List<String> roleIds) {
-        ModifiableAccount modifiableAccount = accountManager.lookupAccount(emailAddress);
-        List<String> roleNames = ensureHasAllRoles(modifiableAccount, roleIds, roleManager);
+    public Account provisionAccount(EmailAddress emailAddress, List<String> roleNames) {
+        return provisionAccount(lookupAccount(emailAddress), emailAddress, roleNames);
+    }
+
+    /**
+     * Returns the id of an account this extension already provisioned for the email with at least the given
+     * role names, without calling the platform.
+     *
+     * @param emailAddress
+     * @param roleNames
+     * @return String or null if the account has to be looked up
+     */
+    public String getProvisionedAccountId(EmailAddress emailAddress, List<String> roleNames) {
+        return accountCache.getAccountId(emailAddress, roleNames);
+    }
+
+    /**
+     * Read only lookup of the account with given email. Never creates roles or accounts.
+     *
+     * @param emailAddress
+     * @return ModifiableAccount or null if the account does not exist
+     */
+    public ModifiableAccount lookupAccount(EmailAddress emailAddress) {
+        return latencyMetrics.time(LatencyMetrics.ACCOUNT_MANAGER,
+                () -> accountManager.lookupAccount(emailAddress.getNormalized()));
+    }
+
+    /**
+     * Ensures the looked up account has all given roles, or creates the account with them if it does not exist.
+     * Roles missing from the workspace are created. Concurrent calls for the same email address share one
+     * provisioning, so racing logins cannot create the account twice.
+     *
+     * @param modifiableAccount result of lookupAccount, may be null
+     * @param emailAddress
+     * @param roleNames
+     * @return Account
+     */
+    public Account provisionAccount(ModifiableAccount modifiableAccount, EmailAddress emailAddress,
+            List<String> roleNames) {
+        return provisionFlights.execute(emailAddress.getNormalized(),
+                () -> provision(modifiableAccount, emailAddress, roleNames));
+    }
+
+    private Account provision(ModifiableAccount modifiableAccount, EmailAddress emailAddress, List<String> roleNames) {
+        accountCache.invalidate(emailAddress);
+        List<String> roleIds = ensureHasAllRoles(modifiableAccount, roleNames);
+        Account account;
         if (modifiableAccount == null) {
-            return accountManager.createAccount(EmailAddresses.getLocalPart(emailAddress),
-                    EmailAddresses.normalizeEmailAddress(emailAddress),
-                    new LinkedHashSet<>(roleNames), provisionUserAttributes(emailAddress));
+            account = latencyMetrics.time(LatencyMetrics.ACCOUNT_MANAGER,
+                    () -> accountManager.createAccount(emailAddress.getLocalPart(),
+                            emailAddress.getNormalized(),
+                            new LinkedHashSet<>(roleIds), provisionUserAttributes(emailAddress)));
+        } else {
+            account = modifiableAccount.unmodifiable();
         }
-        return modifiableAccount.unmodifiable();
+        accountCache.put(emailAddress, account.getAccountId(), roleNames);
+        return account;
     }
 
-    private List<String> ensureHasAllRoles(ModifiableAccount modifiableAccount, List<String> roles,
-            RoleManager roleManager)
+    /**
+     * Resolves the role ids of the given role names. For an existing account only the role ids it does not have
+     * yet are assigned, so a login of an account that already has every role does not write anything.
+     */
+    private List<String> ensureHasAllRoles(ModifiableAccount modifiableAccount, List<String> roleNames)
             throws AuthorizationException {
-        List<String> allRoles = new ArrayList<>();
-        Iterable<ModifiableRole> workspaceRoles = roleManager.getRoles();
-        for (String accountRole : roles) {
-            boolean roleExit = false;
-            for (ModifiableRole workspaceRole : workspaceRoles) {
-                if (Objects.equals(accountRole, workspaceRole.getName())) {
-                    allRoles.add(workspaceRole.getRoleId());
-                    roleExit = true;
-                    break;
-                }
-            }
-            if (!roleExit) {
-                ModifiableRole role = roleManager.createRole(accountRole);
-                allRoles.add(role.getRoleId());
+        List<String> roleIds = roleIndex.resolve(roleNames);
+        if (modifiableAccount != null) {
+            String[] missingRoleIds = getMissingRoleIds(modifiableAccount, roleIds);
+            if (missingRoleIds.length > 0) {
+                latencyMetrics.run(LatencyMetrics.ACCOUNT_MANAGER, () -> modifiableAccount.addRole(missingRoleIds));
             }
         }
-        if (modifiableAccount != null) {
-            for (Role role : modifiableAccount.getRoles()) {
-                allRoles.add(role.getRoleId());
+        return roleIds;
+    }
+
+    private static String[] getMissingRoleIds(Account account, Collection<String> roleIds) {
+        Set<String> currentRoleIds = new HashSet<>();
+        for (Role role : account.getRoles()) {
+            currentRoleIds.add(role.getRoleId());
+        }
+        Set<String> missingRoleIds = new LinkedHashSet<>();
+        for (String roleId : roleIds) {
+            if (!currentRoleIds.contains(roleId)) {
+                missingRoleIds.add(roleId);
             }
-            modifiableAccount.addRole(allRoles.toArray(String[]::new));
         }
-        return allRoles;
+        return missingRoleIds.toArray(String[]::new);
     }
 
-    private Map<String, Object> provisionUserAttributes(String email) {
+    private Map<String, Object> provisionUserAttributes(EmailAddress email) {
         return
-                Map.of("ORG", EmailAddresses.getDomainName(email), "KRISTA_SOURCE",
+                Map.of("ORG", email.getDomainName(), "KRISTA_SOURCE",
                         "EXTENSION_EMAIL_AUTHENTICATION", "KRISTA_LAST_LOGIN",
                         CommonUtils.getDate());
     }
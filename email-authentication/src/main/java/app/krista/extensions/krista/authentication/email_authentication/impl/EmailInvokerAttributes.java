@@ -21,25 +21,42 @@ package app.krista.extensions.krista.authentication.email_authentication.impl;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import app.krista.extension.common.DomainPolicy;
+import app.krista.extension.common.SupportedDomains;
 import app.krista.extension.executor.Invoker;
 import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
 import app.krista.extensions.krista.authentication.email_authentication.mail.EmailConfiguration;
 import app.krista.extensions.krista.authentication.email_authentication.utils.Attributes;
-import app.krista.extensions.krista.authentication.email_authentication.utils.DomainNames;
 
+/**
+ * Immutable, fully parsed invoker configuration. A new instance with a higher version is published
+ * every time the invoker is updated.
+ */
 public final class EmailInvokerAttributes {
 
+    private final long version;
     private final EmailConfiguration emailConfiguration;
     private final List<String> supportedDomains;
+    private final DomainPolicy domainPolicy;
     private final boolean newAccountCreation;
     private final List<String> newAccountRoles;
-
-    private EmailInvokerAttributes(EmailConfiguration emailConfiguration, List<String> supportedDomains,
-            boolean newAccountCreation, List<String> newAccountRoles) {
+    private final boolean asyncLogin;
+    private final Set<String> trustedProxies;
+    private final String metricsToken;
+
+    private EmailInvokerAttributes(long version, EmailConfiguration emailConfiguration,
+            SupportedDomains supportedDomains, boolean newAccountCreation, List<String> newAccountRoles,
+            boolean asyncLogin, Set<String> trustedProxies, String metricsToken) {
+        this.version = version;
         this.emailConfiguration = emailConfiguration;
-        this.supportedDomains = supportedDomains;
+        this.supportedDomains = supportedDomains.getDomainNames();
+        this.domainPolicy = supportedDomains.getDomainPolicy();
         this.newAccountCreation = newAccountCreation;
         this.newAccountRoles = newAccountRoles;
+        this.asyncLogin = asyncLogin;
+        this.trustedProxies = trustedProxies;
+        this.metricsToken = metricsToken;
     }
 
     public static EmailInvokerAttributes parse(Invoker invoker) {
@@ -48,12 +65,20 @@ public final class EmailInvokerAttributes {
     }
 
     public static EmailInvokerAttributes parse(Map<String, Object> attributes) {
+        return parse(attributes, 0);
+    }
+
+    public static EmailInvokerAttributes parse(Map<String, Object> attributes, long version) {
         Objects.requireNonNull(attributes);
         return new EmailInvokerAttributes(
+                version,
                 EmailConfiguration.parse(attributes),
                 parseSupportedDomains(attributes),
                 parseNewAccountCreation(attributes),
-                parseNewAccountRoles(attributes));
+                List.copyOf(parseNewAccountRoles(attributes)),
+                parseAsyncLogin(attributes),
+                Set.copyOf(parseTrustedProxies(attributes)),
+                parseMetricsToken(attributes));
     }
 
     private static List<String> parseNewAccountRoles(Map<String, Object> attributes) {
@@ -69,12 +94,41 @@ public final class EmailInvokerAttributes {
         return Boolean.parseBoolean(allowAutoUser.toString());
     }
 
-    private static List<String> parseSupportedDomains(Map<String, Object> attributes) {
+    private static List<String> parseTrustedProxies(Map<String, Object> attributes) {
+        return Attributes.toList((String) attributes.get(EmailAuthenticationConstants.TRUSTED_PROXIES));
+    }
+
+    private static String parseMetricsToken(Map<String, Object> attributes) {
+        String metricsToken = (String) attributes.get(EmailAuthenticationConstants.METRICS_TOKEN);
+        return metricsToken == null || metricsToken.isBlank() ? null : metricsToken.strip();
+    }
+
+    private static boolean parseAsyncLogin(Map<String, Object> attributes) {
+        Object asyncLogin = attributes.get(EmailAuthenticationConstants.ASYNC_LOGIN);
+        return asyncLogin != null && Boolean.parseBoolean(asyncLogin.toString());
+    }
+
+    /**
+     * Validates the supported domains attribute, throwing ValidationException that lists every invalid domain.
+     * A list containing "*" or "All" allows every domain and is not validated further.
+     *
+     * @param attributes
+     * @return SupportedDomains
+     */
+    public static SupportedDomains parseSupportedDomains(Map<String, Object> attributes) {
         String supportedDomains = (String) attributes.get(EmailAuthenticationConstants.SUPPORTED_DOMAINS);
         if (supportedDomains == null || supportedDomains.isBlank()) {
-            return List.of();
+            return SupportedDomains.ALL;
         }
-        return DomainNames.normalizeDomainNames(Attributes.toList(supportedDomains));
+        List<String> domainNames = Attributes.toList(supportedDomains);
+        if (domainNames.contains("*") || domainNames.stream().anyMatch("all"::equalsIgnoreCase)) {
+            return SupportedDomains.ALL;
+        }
+        return SupportedDomains.validate(domainNames).requireValid();
+    }
+
+    public long getVersion() {
+        return version;
     }
 
     public EmailConfiguration getEmailConfiguration() {
@@ -89,6 +143,15 @@ public final class EmailInvokerAttributes {
         return supportedDomains;
     }
 
+    /**
+     * Returns the supported domains compiled for matching, allowing every domain if none are configured.
+     *
+     * @return DomainPolicy
+     */
+    public DomainPolicy getDomainPolicy() {
+        return domainPolicy;
+    }
+
     public boolean supportsNewAccountCreation() {
         return newAccountCreation;
     }
@@ -97,4 +160,32 @@ public final class EmailInvokerAttributes {
         return newAccountRoles;
     }
 
+    /**
+     * Returns true if login link requests redirect to the waiting page right away and provision the account
+     * and send the email in the background.
+     *
+     * @return boolean
+     */
+    public boolean isAsyncLogin() {
+        return asyncLogin;
+    }
+
+    /**
+     * Returns the addresses of the proxies whose X-Forwarded-For header is trusted.
+     *
+     * @return Set of IP addresses
+     */
+    public Set<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    /**
+     * Returns the bearer token that callers of the metrics endpoint must present.
+     *
+     * @return String or null if the metrics endpoint is disabled
+     */
+    public String getMetricsToken() {
+        return metricsToken;
+    }
+
 }
@@ -18,16 +18,24 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.impl;
 
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import javax.inject.Named;
 import app.krista.extension.executor.Invoker;
 import org.jvnet.hk2.annotations.Service;
 
+/**
+ * Publishes the current EmailInvokerAttributes snapshot. Readers get it with a single volatile read and never
+ * see a partially parsed configuration; INVOKER_UPDATED parses the new attributes and swaps the snapshot in one
+ * write, with a higher version number.
+ */
 @Service
 public class EmailInvokerAttributesProvider {
 
     private final Invoker invoker;
-    private EmailInvokerAttributes attributes;
+    private final AtomicLong versions = new AtomicLong();
+    private volatile EmailInvokerAttributes attributes;
 
     @Inject
     public EmailInvokerAttributesProvider(@Named("self") Invoker invoker) {
@@ -35,18 +43,28 @@ public class EmailInvokerAttributesProvider {
     }
 
     public EmailInvokerAttributes getAttributes() {
-        if (attributes == null) {
-            load();
-        }
-        return attributes;
+        EmailInvokerAttributes current = attributes;
+        return current != null ? current : loadIfAbsent();
     }
 
-    public synchronized void updateAttributes() {
-        load();
+    public void updateAttributes() {
+        updateAttributes(invoker.getAttributes());
     }
 
-    private void load() {
-        attributes = EmailInvokerAttributes.parse(invoker);
+    /**
+     * Parses the given invoker attributes and publishes them as the new snapshot.
+     *
+     * @param invokerAttributes
+     */
+    public synchronized void updateAttributes(Map<String, Object> invokerAttributes) {
+        attributes = EmailInvokerAttributes.parse(invokerAttributes, versions.incrementAndGet());
+    }
+
+    private synchronized EmailInvokerAttributes loadIfAbsent() {
+        if (attributes == null) {
+            updateAttributes();
+        }
+        return attributes;
     }
 
 }
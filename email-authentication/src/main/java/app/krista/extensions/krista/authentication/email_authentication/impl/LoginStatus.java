@@ -0,0 +1,70 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.impl;
+
+import static app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants.*;
+
+/**
+ * Progress of a login link sent in the background, shown by the waiting page.
+ */
+public final class LoginStatus {
+
+    public enum State {
+        PENDING,
+        SENT,
+        FAILED,
+    }
+
+    private final State state;
+    private final String error;
+
+    private LoginStatus(State state, String error) {
+        this.state = state;
+        this.error = error;
+    }
+
+    public static LoginStatus pending() {
+        return new LoginStatus(State.PENDING, null);
+    }
+
+    public static LoginStatus sent() {
+        return new LoginStatus(State.SENT, null);
+    }
+
+    public static LoginStatus failed(String error) {
+        return new LoginStatus(State.FAILED, error);
+    }
+
+    public static LoginStatus fromJson(String json) {
+        return GSON.fromJson(json, LoginStatus.class);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+}
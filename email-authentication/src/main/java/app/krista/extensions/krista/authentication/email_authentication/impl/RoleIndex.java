@@ -0,0 +1,128 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.impl;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+import javax.inject.Inject;
+import app.krista.extension.authorization.AuthorizationException;
+import app.krista.ksdk.authorization.ModifiableRole;
+import app.krista.ksdk.authorization.RoleManager;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Cached index of workspace role names to role ids.
+ * Lookups read an immutable snapshot without locking. The snapshot is rebuilt from RoleManager.getRoles()
+ * after the time to live, after invalidate(), or when a requested role is not in it; roles that are still
+ * missing after the rebuild are created once, together, before the new snapshot is published.
+ */
+@Service
+public final class RoleIndex {
+
+    private static final Duration TIME_TO_LIVE = Duration.ofMinutes(5);
+
+    private final RoleManager roleManager;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private volatile Snapshot snapshot;
+
+    @Inject
+    public RoleIndex(RoleManager roleManager) {
+        this(roleManager, TIME_TO_LIVE, System::nanoTime);
+    }
+
+    public RoleIndex(RoleManager roleManager, Duration timeToLive, LongSupplier nanoClock) {
+        this.roleManager = roleManager;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Returns the role ids of the given role names in the same order, creating roles that do not exist.
+     *
+     * @param roleNames
+     * @return List of role ids
+     * @throws AuthorizationException
+     */
+    public List<String> resolve(Collection<String> roleNames) throws AuthorizationException {
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired(nanoClock.getAsLong()) || !current.containsAll(roleNames)) {
+            current = refresh(roleNames);
+        }
+        List<String> roleIds = new ArrayList<>(roleNames.size());
+        for (String roleName : roleNames) {
+            roleIds.add(current.roleIds.get(roleName));
+        }
+        return roleIds;
+    }
+
+    /**
+     * Forces the next lookup to reload the workspace roles.
+     */
+    public void invalidate() {
+        snapshot = null;
+    }
+
+    private synchronized Snapshot refresh(Collection<String> roleNames) {
+        Snapshot current = snapshot;
+        long now = nanoClock.getAsLong();
+        if (current != null && !current.isExpired(now) && current.containsAll(roleNames)) {
+            return current;
+        }
+        Map<String, String> roleIds = new HashMap<>();
+        for (ModifiableRole role : roleManager.getRoles()) {
+            roleIds.putIfAbsent(role.getName(), role.getRoleId());
+        }
+        for (String roleName : new LinkedHashSet<>(roleNames)) {
+            if (!roleIds.containsKey(roleName)) {
+                roleIds.put(roleName, roleManager.createRole(roleName).getRoleId());
+            }
+        }
+        current = new Snapshot(Map.copyOf(roleIds), now + timeToLiveNanos);
+        snapshot = current;
+        return current;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, String> roleIds;
+        private final long expiresAt;
+
+        private Snapshot(Map<String, String> roleIds, long expiresAt) {
+            this.roleIds = roleIds;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        private boolean containsAll(Collection<String> roleNames) {
+            for (String roleName : roleNames) {
+                if (!roleIds.containsKey(roleName)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -18,65 +18,33 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.impl;
 
+import java.util.List;
 import javax.inject.Inject;
-import javax.inject.Named;
-import app.krista.extension.authorization.AuthorizationException;
-import app.krista.extension.executor.Invoker;
-import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
-import app.krista.ksdk.authorization.ModifiableRole;
-import app.krista.ksdk.authorization.RoleManager;
 import org.jvnet.hk2.annotations.Service;
 
 import static app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants.*;
 
 /**
- * Create or fetch workspace roles.
+ * Resolves the role names given to new accounts. The roles themselves are looked up and created by RoleIndex.
  */
 @Service
 public final class RoleProvisioner {
 
-    private final Invoker invoker;
-    private final RoleManager roleManager;
+    private final EmailInvokerAttributesProvider invokerAttributesProvider;
 
     @Inject
-    public RoleProvisioner(@Named("self") Invoker invoker, RoleManager roleManager) {
-        this.invoker = invoker;
-        this.roleManager = roleManager;
+    public RoleProvisioner(EmailInvokerAttributesProvider invokerAttributesProvider) {
+        this.invokerAttributesProvider = invokerAttributesProvider;
     }
 
     /**
-     * This method retrieves a role from the workspace that matches the 'Default Role Name'.
-     * This method will create a new role in workspace if the matching role does not exist.
+     * Returns the role names of @DEFAULT_ROLES_FOR_NEW_ACCOUNT, or @DEFAULT_ROLE if none are set.
      *
-     * @return ModifiableRole
-     * @throws AuthorizationException
+     * @return List of role names
      */
-    public ModifiableRole provisionDefaultRole() throws AuthorizationException {
-        return getModifiableRole(getDefaultRoleName());
-    }
-
-    private ModifiableRole getModifiableRole(String roleName) {
-        ModifiableRole modifiableRole = roleManager.lookupRole(roleName);
-        if (null == modifiableRole) {
-            roleManager.createRole(roleName);
-        }
-        return modifiableRole;
-    }
-
-    /**
-     * Verify the invoker parameter values for @DEFAULT_ROLES_FOR_NEW_ACCOUNT if not present
-     * returns @DEFAULT_ROLE
-     *
-     * @return String
-     */
-    private String getDefaultRoleName() {
-        String defaultRole = DEFAULT_ROLE;
-        Object defaultRoleObject =
-                invoker.getAttributes().get(EmailAuthenticationConstants.DEFAULT_ROLES_FOR_NEW_ACCOUNT);
-        if (defaultRoleObject instanceof String && !((String) defaultRoleObject).isBlank()) {
-            defaultRole = (String) defaultRoleObject;
-        }
-        return defaultRole;
+    public List<String> getDefaultRoleNames() {
+        List<String> roleNames = invokerAttributesProvider.getAttributes().getNewAccountRoles();
+        return roleNames.isEmpty() ? List.of(DEFAULT_ROLE) : roleNames;
     }
 
 }
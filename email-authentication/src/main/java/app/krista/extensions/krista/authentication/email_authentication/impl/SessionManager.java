@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.util.Objects;
 import java.util.UUID;
 import javax.inject.Inject;
+import app.krista.extension.common.ValidationException;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
 import app.krista.extensions.util.KeyValueStore;
 import org.jvnet.hk2.annotations.Service;
 
@@ -33,10 +35,12 @@ import org.jvnet.hk2.annotations.Service;
 public final class SessionManager {
 
     private final KeyValueStore keyValueStore;
+    private final LatencyMetrics latencyMetrics;
 
     @Inject
-    public SessionManager(KeyValueStore keyValueStore) {
+    public SessionManager(KeyValueStore keyValueStore, LatencyMetrics latencyMetrics) {
         this.keyValueStore = keyValueStore;
+        this.latencyMetrics = latencyMetrics;
     }
 
     /**
@@ -48,20 +52,70 @@ public final class SessionManager {
      * @throws IOException
      */
     public String create(String accountId) throws IOException {
-        String session = UUID.randomUUID().toString();
-        keyValueStore.put(toKey(session), accountId);
+        String session = reserve();
+        create(session, accountId);
         return session;
     }
 
+    /**
+     * Returns a new session id without storing anything, to be created later with create(sessionId, accountId).
+     *
+     * @return sessionId
+     */
+    public String reserve() {
+        return UUID.randomUUID().toString();
+    }
+
+    public void create(String sessionId, String accountId) throws IOException {
+        latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE, () -> keyValueStore.put(toKey(sessionId), accountId));
+    }
+
+    /**
+     * Stores the progress of a login link sent in the background for the waiting page.
+     *
+     * @param sessionId
+     * @param loginStatus
+     * @throws IOException
+     */
+    public void setStatus(String sessionId, LoginStatus loginStatus) throws IOException {
+        latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE,
+                () -> keyValueStore.put(toStatusKey(sessionId), loginStatus.toJson()));
+    }
+
+    /**
+     * Returns the progress of the login link of the session, PENDING while nothing was stored yet.
+     * A final SENT or FAILED status is removed once it has been read, as the waiting page stops polling then.
+     *
+     * @param sessionId
+     * @return LoginStatus
+     * @throws IOException
+     */
+    public LoginStatus getStatus(String sessionId) throws IOException {
+        String value = latencyMetrics.time(LatencyMetrics.KEY_VALUE_STORE,
+                () -> keyValueStore.get(toStatusKey(sessionId), String.class));
+        if (value == null) {
+            return LoginStatus.pending();
+        }
+        LoginStatus loginStatus = LoginStatus.fromJson(value);
+        if (loginStatus.getState() != LoginStatus.State.PENDING) {
+            latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE, () -> keyValueStore.remove(toStatusKey(sessionId)));
+        }
+        return loginStatus;
+    }
+
     public String getAccountId(String sessionId) throws IOException {
-        return keyValueStore.get(toKey(sessionId), String.class);
+        return latencyMetrics.time(LatencyMetrics.KEY_VALUE_STORE,
+                () -> keyValueStore.get(toKey(sessionId), String.class));
     }
 
     public void remove(String sessionId) throws IOException {
         if (sessionId == null || sessionId.isEmpty()) {
-            throw new IllegalArgumentException("Missing session id.");
+            throw new ValidationException("Missing session id.");
         }
-        keyValueStore.remove(toKey(sessionId));
+        latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE, () -> {
+            keyValueStore.remove(toKey(sessionId));
+            keyValueStore.remove(toStatusKey(sessionId));
+        });
     }
 
     private String toKey(String secret) {
@@ -69,4 +123,9 @@ public final class SessionManager {
         return "session-" + secret;
     }
 
+    private String toStatusKey(String secret) {
+        Objects.requireNonNull(secret);
+        return "session-status-" + secret;
+    }
+
 }
@@ -20,6 +20,7 @@ package app.krista.extensions.krista.authentication.email_authentication.impl;
 
 import java.io.IOException;
 import javax.inject.Inject;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
 import app.krista.extensions.util.KeyValueStore;
 import org.jvnet.hk2.annotations.Service;
 
@@ -30,23 +31,26 @@ import org.jvnet.hk2.annotations.Service;
 public final class VerificationLinkManager {
 
     private final KeyValueStore keyValueStore;
+    private final LatencyMetrics latencyMetrics;
 
     @Inject
-    public VerificationLinkManager(KeyValueStore keyValueStore) {
+    public VerificationLinkManager(KeyValueStore keyValueStore, LatencyMetrics latencyMetrics) {
         this.keyValueStore = keyValueStore;
+        this.latencyMetrics = latencyMetrics;
     }
 
     public VerificationLinkDetails get(String code) throws IOException {
-        String value = keyValueStore.get(code, String.class);
+        String value = latencyMetrics.time(LatencyMetrics.KEY_VALUE_STORE, () -> keyValueStore.get(code, String.class));
         return value == null ? null : VerificationLinkDetails.fromJson(value);
     }
 
     public void add(VerificationLinkDetails verificationLinkDetails) throws IOException {
-        keyValueStore.put(toKey(verificationLinkDetails.getSecret()), verificationLinkDetails.toJson());
+        latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE,
+                () -> keyValueStore.put(toKey(verificationLinkDetails.getSecret()), verificationLinkDetails.toJson()));
     }
 
     public void remove(String code) throws IOException {
-        keyValueStore.remove(toKey(code));
+        latencyMetrics.run(LatencyMetrics.KEY_VALUE_STORE, () -> keyValueStore.remove(toKey(code)));
     }
 
     private String toKey(String secret) {
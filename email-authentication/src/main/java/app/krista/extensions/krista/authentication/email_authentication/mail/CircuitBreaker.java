@@ -0,0 +1,172 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count based circuit breaker guarding the SMTP dispatch path.
+ * Tracks failure rate and slow call rate over the last calls; once either crosses its threshold the breaker
+ * opens and rejects callers until the open duration has elapsed. It then lets a few probe calls through
+ * (half-open) and closes again when they all succeed.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final float slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openDurationNanos;
+    private final int permittedHalfOpenCalls;
+    private final LongSupplier nanoClock;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int nextIndex;
+    private int recordedCalls;
+    private int failedCallCount;
+    private int slowCallCount;
+
+    private State state = State.CLOSED;
+    private long stateChangedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker() {
+        this(20, 5, 0.5f, 0.5f, Duration.ofSeconds(10), Duration.ofSeconds(30), 3, System::nanoTime);
+    }
+
+    public CircuitBreaker(int windowSize, int minimumCalls, float failureRateThreshold, float slowCallRateThreshold,
+            Duration slowCallDuration, Duration openDuration, int permittedHalfOpenCalls, LongSupplier nanoClock) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize || permittedHalfOpenCalls < 1) {
+            throw new IllegalArgumentException("Invalid circuit breaker window configuration.");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = slowCallDuration.toNanos();
+        this.openDurationNanos = openDuration.toNanos();
+        this.permittedHalfOpenCalls = permittedHalfOpenCalls;
+        this.nanoClock = nanoClock;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+        this.stateChangedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Returns true if a call may go ahead. Moves an open breaker to half-open once the open duration has
+     * elapsed and hands out at most the permitted number of probe calls. Probes that never report back
+     * (e.g. the login was rejected after the check) are released again after another open duration.
+     *
+     * @return boolean
+     */
+    public synchronized boolean tryAcquirePermission() {
+        long now = nanoClock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - stateChangedAt < openDurationNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN, now);
+                break;
+            case HALF_OPEN:
+            default:
+                if (now - stateChangedAt >= openDurationNanos) {
+                    transitionTo(State.HALF_OPEN, now);
+                }
+        }
+        if (halfOpenPermits < permittedHalfOpenCalls) {
+            halfOpenPermits++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    public synchronized void onError(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed, long durationNanos) {
+        boolean slow = durationNanos >= slowCallDurationNanos;
+        long now = nanoClock.getAsLong();
+        if (state == State.HALF_OPEN) {
+            if (failed || slow) {
+                transitionTo(State.OPEN, now);
+            } else if (++halfOpenSuccesses >= permittedHalfOpenCalls) {
+                transitionTo(State.CLOSED, now);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (recordedCalls == windowSize) {
+            failedCallCount -= failedCalls[nextIndex] ? 1 : 0;
+            slowCallCount -= slowCalls[nextIndex] ? 1 : 0;
+        } else {
+            recordedCalls++;
+        }
+        failedCalls[nextIndex] = failed;
+        slowCalls[nextIndex] = slow;
+        failedCallCount += failed ? 1 : 0;
+        slowCallCount += slow ? 1 : 0;
+        nextIndex = (nextIndex + 1) % windowSize;
+        if (recordedCalls >= minimumCalls
+                && ((float) failedCallCount / recordedCalls >= failureRateThreshold
+                || (float) slowCallCount / recordedCalls >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN, now);
+        }
+    }
+
+    private void transitionTo(State newState, long now) {
+        if (state != newState) {
+            System.out.println("SMTP circuit breaker changed from " + state + " to " + newState);
+        }
+        state = newState;
+        stateChangedAt = now;
+        halfOpenPermits = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.CLOSED) {
+            nextIndex = 0;
+            recordedCalls = 0;
+            failedCallCount = 0;
+            slowCallCount = 0;
+        }
+    }
+
+}
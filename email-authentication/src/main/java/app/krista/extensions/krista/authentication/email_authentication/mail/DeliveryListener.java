@@ -0,0 +1,42 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+/**
+ * Receives the final delivery outcome of a queued message, once it was accepted by a relay or given up on.
+ * Called on the sender's worker threads.
+ */
+public interface DeliveryListener {
+
+    DeliveryListener NONE = new DeliveryListener() {
+        @Override
+        public void onSent(String sessionId) {
+        }
+
+        @Override
+        public void onFailed(String sessionId) {
+        }
+    };
+
+    void onSent(String sessionId);
+
+    void onFailed(String sessionId);
+
+}
@@ -18,6 +18,8 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.mail;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import app.krista.extension.executor.Invoker;
@@ -32,17 +34,28 @@ public class EmailConfiguration {
     private final String smtpHost;
     private final int smtpPort;
     private final Protocol protocol;
+    private final List<Relay> relays;
 
     public EmailConfiguration(boolean useDefaultMailServer, String senderEmailAddress, String senderAccount,
             String senderPassword,
             String smtpHost, int smtpPort, Protocol protocol) {
+        this(useDefaultMailServer, senderEmailAddress, senderAccount, senderPassword,
+                List.of(new Relay(smtpHost, smtpPort, 1, protocol)));
+    }
+
+    public EmailConfiguration(boolean useDefaultMailServer, String senderEmailAddress, String senderAccount,
+            String senderPassword, List<Relay> relays) {
+        if (relays == null || relays.isEmpty()) {
+            throw new IllegalArgumentException("At least one SMTP host is required.");
+        }
         this.useDefaultMailServer = useDefaultMailServer;
         this.senderEmailAddress = senderEmailAddress;
         this.smtpAccount = senderAccount;
         this.smtpPassword = senderPassword;
-        this.smtpHost = smtpHost;
-        this.smtpPort = smtpPort;
-        this.protocol = protocol;
+        this.smtpHost = relays.get(0).getHost();
+        this.smtpPort = relays.get(0).getPort();
+        this.protocol = relays.get(0).getProtocol();
+        this.relays = List.copyOf(relays);
     }
 
     public static EmailConfiguration parse(Invoker invoker) {
@@ -62,21 +75,83 @@ public class EmailConfiguration {
         String smtpPassword = (String) attributes.get(EmailAuthenticationConstants.SMTP_PASSWORD);
         String smtpHost = (String) attributes.get(EmailAuthenticationConstants.SMTP_HOST);
         int smtpPort = Integer.parseInt((String) attributes.get(EmailAuthenticationConstants.SMTP_PORT));
-        Protocol protocol;
+        return new EmailConfiguration(useDefaultMailServer, senderEmailAddress, smtpAccount, smtpPassword,
+                parseRelays(smtpHost, smtpPort));
+    }
+
+    /**
+     * Parses the SMTP host attribute as a comma separated list of relays, each written as
+     * {@code host[:port][*weight]}. Relays without a port use the SMTP port attribute, relays without
+     * a weight get weight 1. IPv6 addresses take a port only when written in brackets, {@code [::1]:25}.
+     *
+     * @param smtpHosts
+     * @param defaultPort
+     * @return List of relays
+     */
+    public static List<Relay> parseRelays(String smtpHosts, int defaultPort) {
+        if (smtpHosts == null || smtpHosts.isBlank()) {
+            throw new IllegalArgumentException("SMTP host is missing.");
+        }
+        List<Relay> relays = new ArrayList<>();
+        for (String entry : smtpHosts.split(",")) {
+            String relay = entry.strip();
+            if (relay.isEmpty()) {
+                continue;
+            }
+            int weight = 1;
+            int weightIndex = relay.indexOf('*');
+            if (weightIndex >= 0) {
+                weight = parseNumber(relay.substring(weightIndex + 1), entry);
+                relay = relay.substring(0, weightIndex).strip();
+            }
+            int port = defaultPort;
+            int portIndex;
+            if (relay.startsWith("[")) {
+                int end = relay.indexOf(']');
+                if (end < 0) {
+                    throw new IllegalArgumentException("Invalid SMTP host: " + entry.strip());
+                }
+                String rest = relay.substring(end + 1).strip();
+                if (!rest.isEmpty()) {
+                    if (rest.charAt(0) != ':') {
+                        throw new IllegalArgumentException("Invalid SMTP host: " + entry.strip());
+                    }
+                    port = parseNumber(rest.substring(1), entry);
+                }
+                relay = relay.substring(1, end).strip();
+            } else if ((portIndex = relay.lastIndexOf(':')) >= 0 && relay.indexOf(':') == portIndex) {
+                port = parseNumber(relay.substring(portIndex + 1), entry);
+                relay = relay.substring(0, portIndex).strip();
+            }
+            if (relay.isEmpty() || weight < 1) {
+                throw new IllegalArgumentException("Invalid SMTP host: " + entry.strip());
+            }
+            relays.add(new Relay(relay, port, weight, toProtocol(port)));
+        }
+        if (relays.isEmpty()) {
+            throw new IllegalArgumentException("SMTP host is missing.");
+        }
+        return relays;
+    }
+
+    private static int parseNumber(String value, String entry) {
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException cause) {
+            throw new IllegalArgumentException("Invalid SMTP host: " + entry.strip(), cause);
+        }
+    }
+
+    private static Protocol toProtocol(int smtpPort) {
         switch (smtpPort) {
             case 25:
-                protocol = Protocol.SMTP;
-                break;
+                return Protocol.SMTP;
             case 587:
-                protocol = Protocol.START_TLS;
-                break;
+                return Protocol.START_TLS;
             case 465:
             default:
-                protocol = Protocol.SMTPS;
+                return Protocol.SMTPS;
         }
-
-        return new EmailConfiguration(useDefaultMailServer, senderEmailAddress, smtpAccount, smtpPassword, smtpHost,
-                smtpPort, protocol);
     }
 
     public boolean isUsingDefaultMailServer() {
@@ -107,10 +182,51 @@ public class EmailConfiguration {
         return protocol;
     }
 
+    public List<Relay> getRelays() {
+        return relays;
+    }
+
     public enum Protocol {
         START_TLS,
         SMTP,
         SMTPS
     }
 
+    public static final class Relay {
+
+        private final String host;
+        private final int port;
+        private final int weight;
+        private final Protocol protocol;
+
+        public Relay(String host, int port, int weight, Protocol protocol) {
+            this.host = host;
+            this.port = port;
+            this.weight = weight;
+            this.protocol = protocol;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+
+    }
+
 }
@@ -0,0 +1,250 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Blocking queue with an interactive and a background lane.
+ * Interactive mail (login links) is served first. Background mail still gets one slot after every
+ * burst of interactive takes, or as soon as it has waited longer than its maximum wait, but never while
+ * the interactive head is already past its latency objective.
+ */
+public final class EmailDispatchQueue<T> {
+
+    public enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private static final int INTERACTIVE_BURST = 8;
+    private static final long INTERACTIVE_SLO_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long BACKGROUND_MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<Lane, ArrayDeque<Entry<T>>> lanes = new EnumMap<>(Lane.class);
+    private final Map<Lane, LaneCounters> counters = new EnumMap<>(Lane.class);
+    private final LongSupplier nanoClock;
+    private int interactiveStreak;
+
+    public EmailDispatchQueue() {
+        this(System::nanoTime);
+    }
+
+    public EmailDispatchQueue(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new ArrayDeque<>());
+            counters.put(lane, new LaneCounters());
+        }
+    }
+
+    public void offer(T work, Lane lane) {
+        lock.lock();
+        try {
+            lanes.get(lane).addLast(new Entry<>(work, nanoClock.getAsLong()));
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public T take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (lanes.get(Lane.INTERACTIVE).isEmpty() && lanes.get(Lane.BACKGROUND).isEmpty()) {
+                notEmpty.await();
+            }
+            long now = nanoClock.getAsLong();
+            Lane lane = nextLane(now);
+            Entry<T> entry = lanes.get(lane).pollFirst();
+            interactiveStreak = lane == Lane.INTERACTIVE ? interactiveStreak + 1 : 0;
+            counters.get(lane).record(now - entry.enqueuedAt, lane == Lane.INTERACTIVE
+                    ? INTERACTIVE_SLO_NANOS : BACKGROUND_MAX_WAIT_NANOS);
+            return entry.work;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns everything still queued, interactive lane first.
+     *
+     * @return List of work
+     */
+    public List<T> drain() {
+        lock.lock();
+        try {
+            List<T> work = new ArrayList<>();
+            for (ArrayDeque<Entry<T>> entries : lanes.values()) {
+                for (Entry<T> entry = entries.pollFirst(); entry != null; entry = entries.pollFirst()) {
+                    work.add(entry.work);
+                }
+            }
+            return work;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size(Lane lane) {
+        lock.lock();
+        try {
+            return lanes.get(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns queue wait time statistics of the given lane.
+     *
+     * @param lane
+     * @return Statistics
+     */
+    public Statistics getStatistics(Lane lane) {
+        lock.lock();
+        try {
+            LaneCounters laneCounters = counters.get(lane);
+            return new Statistics(lane, lanes.get(lane).size(), laneCounters.dequeued,
+                    laneCounters.dequeued == 0 ? 0 : laneCounters.totalWaitNanos / laneCounters.dequeued / 1_000_000.0,
+                    laneCounters.maxWaitNanos / 1_000_000.0, laneCounters.overdue);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Lane nextLane(long now) {
+        Entry<T> interactive = lanes.get(Lane.INTERACTIVE).peekFirst();
+        Entry<T> background = lanes.get(Lane.BACKGROUND).peekFirst();
+        if (background == null) {
+            return Lane.INTERACTIVE;
+        }
+        if (interactive == null) {
+            return Lane.BACKGROUND;
+        }
+        if (now - interactive.enqueuedAt >= INTERACTIVE_SLO_NANOS) {
+            return Lane.INTERACTIVE;
+        }
+        if (interactiveStreak >= INTERACTIVE_BURST || now - background.enqueuedAt >= BACKGROUND_MAX_WAIT_NANOS) {
+            return Lane.BACKGROUND;
+        }
+        return Lane.INTERACTIVE;
+    }
+
+    public static final class Statistics {
+
+        private final Lane lane;
+        private final int queued;
+        private final long dequeued;
+        private final double meanWaitMillis;
+        private final double maxWaitMillis;
+        private final long overdue;
+
+        public Statistics(Lane lane, int queued, long dequeued, double meanWaitMillis, double maxWaitMillis,
+                long overdue) {
+            this.lane = lane;
+            this.queued = queued;
+            this.dequeued = dequeued;
+            this.meanWaitMillis = meanWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+            this.overdue = overdue;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public int getQueued() {
+            return queued;
+        }
+
+        public long getDequeued() {
+            return dequeued;
+        }
+
+        public double getMeanWaitMillis() {
+            return meanWaitMillis;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitMillis;
+        }
+
+        /**
+         * Number of messages that waited longer than the lane target: the latency objective for interactive
+         * mail, the maximum wait for background mail.
+         */
+        public long getOverdue() {
+            return overdue;
+        }
+
+        @Override
+        public String toString() {
+            return "{lane=" + lane +
+                    ", queued=" + queued +
+                    ", dequeued=" + dequeued +
+                    ", meanWaitMillis=" + meanWaitMillis +
+                    ", maxWaitMillis=" + maxWaitMillis +
+                    ", overdue=" + overdue +
+                    '}';
+        }
+
+    }
+
+    private static final class Entry<T> {
+
+        private final T work;
+        private final long enqueuedAt;
+
+        private Entry(T work, long enqueuedAt) {
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+    }
+
+    private static final class LaneCounters {
+
+        private long dequeued;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        private long overdue;
+
+        private void record(long waitNanos, long targetNanos) {
+            dequeued++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+            if (waitNanos > targetNanos) {
+                overdue++;
+            }
+        }
+
+    }
+
+}
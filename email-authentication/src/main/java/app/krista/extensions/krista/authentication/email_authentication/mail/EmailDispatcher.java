@@ -0,0 +1,166 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import javax.mail.MessagingException;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributes;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Owns the long-lived EmailSender built from the invoker SMTP configuration and the circuit breaker
+ * that guards it. Callers check {@link #tryAcquirePermission()} before doing any work that only makes
+ * sense if the mail can actually be delivered.
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final int MAX_CONNECTIONS_PER_RELAY = 8;
+
+    private final EmailInvokerAttributesProvider invokerAttributesProvider;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyMetrics latencyMetrics;
+    private final SmtpTlsContext tlsContext = new SmtpTlsContext();
+    private SmtpRelayPool relayPool;
+    private EmailSender emailSender;
+    private long configurationVersion;
+
+    @Inject
+    public EmailDispatcher(EmailInvokerAttributesProvider invokerAttributesProvider, LatencyMetrics latencyMetrics) {
+        this(invokerAttributesProvider, new CircuitBreaker(), latencyMetrics);
+    }
+
+    public EmailDispatcher(EmailInvokerAttributesProvider invokerAttributesProvider, CircuitBreaker circuitBreaker,
+            LatencyMetrics latencyMetrics) {
+        this.invokerAttributesProvider = invokerAttributesProvider;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Returns false while the SMTP circuit breaker is open, so the login can fail fast.
+     *
+     * @return boolean
+     */
+    public boolean tryAcquirePermission() {
+        return circuitBreaker.tryAcquirePermission();
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Returns per relay throughput and error counters of the current sender.
+     *
+     * @return List of relay metrics, empty until the first dispatch
+     */
+    public synchronized List<SmtpRelay.Metrics> getRelayMetrics() {
+        return emailSender == null ? List.of() : relayPool.getMetrics();
+    }
+
+    /**
+     * Returns handshake counts and mean handshake times of full and resumed TLS sessions.
+     * The TLS context outlives reloads, so sessions stay resumable across configuration updates.
+     *
+     * @return SmtpTlsContext.Statistics
+     */
+    public SmtpTlsContext.Statistics getTlsStatistics() {
+        return tlsContext.getStatistics();
+    }
+
+    /**
+     * Returns queue wait time statistics of the interactive and background lanes.
+     *
+     * @return List of lane statistics, empty until the first dispatch
+     */
+    public synchronized List<EmailDispatchQueue.Statistics> getQueueStatistics() {
+        return emailSender == null ? List.of() : emailSender.getQueueStatistics();
+    }
+
+    public void dispatch(String toEmailAddress, String subject, String messageBody, String sessionId)
+            throws MessagingException {
+        dispatch(toEmailAddress, subject, messageBody, sessionId, EmailDispatchQueue.Lane.INTERACTIVE);
+    }
+
+    public void dispatch(String toEmailAddress, String subject, String messageBody, String sessionId,
+            EmailDispatchQueue.Lane lane) throws MessagingException {
+        dispatch(toEmailAddress, subject, messageBody, sessionId, lane, DeliveryListener.NONE);
+    }
+
+    /**
+     * Queues the message on the current sender and reports its final delivery outcome to the listener.
+     *
+     * @param toEmailAddress
+     * @param subject
+     * @param messageBody
+     * @param sessionId
+     * @param lane
+     * @param deliveryListener
+     * @throws MessagingException
+     */
+    public void dispatch(String toEmailAddress, String subject, String messageBody, String sessionId,
+            EmailDispatchQueue.Lane lane, DeliveryListener deliveryListener) throws MessagingException {
+        EmailSender sender = getEmailSender();
+        latencyMetrics.run(LatencyMetrics.SMTP,
+                () -> sender.sendMessage(toEmailAddress, subject, messageBody, sessionId, lane, deliveryListener));
+    }
+
+    /**
+     * Drops the current sender so the next dispatch picks up the updated SMTP configuration.
+     */
+    public synchronized void reload() {
+        if (emailSender != null) {
+            emailSender.shutdown();
+            emailSender = null;
+            relayPool = null;
+        }
+    }
+
+    /**
+     * Returns the sender of the current configuration snapshot, replacing the sender when the snapshot
+     * version has changed since it was built.
+     */
+    private synchronized EmailSender getEmailSender() {
+        EmailInvokerAttributes attributes = invokerAttributesProvider.getAttributes();
+        if (emailSender != null && configurationVersion != attributes.getVersion()) {
+            reload();
+        }
+        if (emailSender == null) {
+            EmailConfiguration configuration = attributes.getEmailConfiguration();
+            configurationVersion = attributes.getVersion();
+            List<SmtpRelay> relays = new ArrayList<>();
+            for (EmailConfiguration.Relay relay : configuration.getRelays()) {
+                MailSessionProvider mailSessionProvider = new MailSessionProvider(
+                        SmtpTransportProperties.create(configuration, relay, tlsContext.getSocketFactory()),
+                        configuration.getSmtpAccount(), configuration.getSmtpPassword());
+                relays.add(new SmtpRelay(relay, mailSessionProvider, MAX_CONNECTIONS_PER_RELAY));
+            }
+            relayPool = new SmtpRelayPool(relays);
+            emailSender = new EmailSender(relayPool, circuitBreaker, relays.size() * MAX_CONNECTIONS_PER_RELAY);
+            emailSender.init();
+        }
+        return emailSender;
+    }
+
+}
@@ -18,57 +18,215 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.mail;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import javax.mail.Message;
 import javax.mail.MessagingException;
-import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
+import com.sun.mail.smtp.SMTPAddressFailedException;
+import com.sun.mail.smtp.SMTPSendFailedException;
+import com.sun.mail.smtp.SMTPSenderFailedException;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue.Lane;
 
 public final class EmailSender {
 
+    private static final Pattern THROTTLE_REPLY = Pattern.compile("^(421|451|452)(?:[ -]|$)");
+    private static final Pattern CONNECT_THROTTLE_REPLY = Pattern.compile(", response: (421|451|452)$");
+    private static final long SLOT_RETRY_MILLIS = 20;
+    private static final long THROTTLE_BACKOFF_MILLIS = 1000;
+    private static final int MAX_ATTEMPTS = 3;
+
     private final ExecutorService executorService;
-    private final MailSessionProvider mailSessionProvider;
-    private final Queue<EmailWork> emailWorkList = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService retryExecutorService;
+    private final SmtpRelayPool relayPool;
+    private final CircuitBreaker circuitBreaker;
+    private final int workerCount;
+    private final EmailDispatchQueue<EmailWork> emailWorkList = new EmailDispatchQueue<>();
+    private final Set<Worker> workers = new HashSet<>();
+    private boolean shutdown;
+
+    public EmailSender(SmtpRelayPool relayPool, CircuitBreaker circuitBreaker) {
+        this(relayPool, circuitBreaker, Math.max(2, relayPool.size() * 2));
+    }
 
-    public EmailSender(MailSessionProvider mailSessionProvider) {
-        this(Executors.newSingleThreadExecutor(), mailSessionProvider);
+    public EmailSender(SmtpRelayPool relayPool, CircuitBreaker circuitBreaker, int workerCount) {
+        this(Executors.newFixedThreadPool(workerCount), relayPool, circuitBreaker, workerCount);
     }
 
-    public EmailSender(ExecutorService executorService, MailSessionProvider mailSessionProvider) {
+    public EmailSender(ExecutorService executorService, SmtpRelayPool relayPool, CircuitBreaker circuitBreaker,
+            int workerCount) {
         this.executorService = executorService;
-        this.mailSessionProvider = mailSessionProvider;
+        this.retryExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-sender-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.relayPool = relayPool;
+        this.circuitBreaker = circuitBreaker;
+        this.workerCount = workerCount;
     }
 
-    public void init() {
-        executorService.submit(new Worker());
+    public synchronized void init() {
+        for (int i = 0; i < workerCount; i++) {
+            Worker worker = new Worker();
+            workers.add(worker);
+            executorService.submit(worker);
+        }
+    }
+
+    /**
+     * Stops the workers. Messages still queued, and retries that come due later, are reported as failed.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        workers.forEach(Worker::terminate);
+        executorService.shutdownNow();
+        retryExecutorService.shutdown();
+        emailWorkList.drain().forEach(EmailWork::onFailed);
+        relayPool.close();
     }
 
     private Message createMessage(String toEmailAddress, String subject, String messageBody) throws MessagingException {
-        Message message = new MimeMessage(mailSessionProvider.getSession());
+        Message message = new MimeMessage(relayPool.getRelays().get(0).getMailSessionProvider().getSession());
         message.addRecipient(Message.RecipientType.TO, new InternetAddress(toEmailAddress));
         message.setSubject(subject);
         message.setText(messageBody);
         return message;
     }
 
-    public void sendMessage(String toEmailAddress, String subject, String messageBody, String secret)
+    public void sendMessage(String toEmailAddress, String subject, String messageBody, String sessionId)
+            throws MessagingException {
+        sendMessage(toEmailAddress, subject, messageBody, sessionId, Lane.INTERACTIVE);
+    }
+
+    public void sendMessage(String toEmailAddress, String subject, String messageBody, String sessionId, Lane lane)
             throws MessagingException {
-        emailWorkList.offer(new EmailWork(createMessage(toEmailAddress, subject, messageBody), secret));
+        sendMessage(toEmailAddress, subject, messageBody, sessionId, lane, DeliveryListener.NONE);
+    }
+
+    /**
+     * Queues the message; the listener is told the outcome for the session once the message was delivered
+     * or given up on.
+     *
+     * @param toEmailAddress
+     * @param subject
+     * @param messageBody
+     * @param sessionId
+     * @param lane
+     * @param deliveryListener
+     * @throws MessagingException
+     */
+    public void sendMessage(String toEmailAddress, String subject, String messageBody, String sessionId, Lane lane,
+            DeliveryListener deliveryListener) throws MessagingException {
+        enqueue(new EmailWork(createMessage(toEmailAddress, subject, messageBody), sessionId, lane,
+                deliveryListener));
+    }
+
+    /**
+     * Returns queue wait time statistics of every lane.
+     *
+     * @return List of lane statistics
+     */
+    public List<EmailDispatchQueue.Statistics> getQueueStatistics() {
+        List<EmailDispatchQueue.Statistics> statistics = new ArrayList<>();
+        for (Lane lane : Lane.values()) {
+            statistics.add(emailWorkList.getStatistics(lane));
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns true if the relay answered with a transient "slow down" reply rather than a real failure.
+     * The reply code is taken from the SMTP exceptions where available; otherwise only a message that is
+     * itself a server reply, or a failed connect that quotes one, counts.
+     *
+     * @param cause
+     * @return boolean
+     */
+    static boolean isThrottled(MessagingException cause) {
+        for (Exception exception = cause; exception != null; ) {
+            int returnCode = getReturnCode(exception);
+            if (returnCode > 0) {
+                if (isThrottleReply(returnCode)) {
+                    return true;
+                }
+            } else if (exception.getMessage() != null) {
+                String message = exception.getMessage().strip();
+                if (THROTTLE_REPLY.matcher(message).find() || CONNECT_THROTTLE_REPLY.matcher(message).find()) {
+                    return true;
+                }
+            }
+            exception = exception instanceof MessagingException
+                    ? ((MessagingException) exception).getNextException() : null;
+        }
+        return false;
+    }
+
+    private static int getReturnCode(Exception exception) {
+        if (exception instanceof SMTPSendFailedException) {
+            return ((SMTPSendFailedException) exception).getReturnCode();
+        }
+        if (exception instanceof SMTPAddressFailedException) {
+            return ((SMTPAddressFailedException) exception).getReturnCode();
+        }
+        if (exception instanceof SMTPSenderFailedException) {
+            return ((SMTPSenderFailedException) exception).getReturnCode();
+        }
+        return -1;
+    }
+
+    private static boolean isThrottleReply(int returnCode) {
+        return returnCode == 421 || returnCode == 451 || returnCode == 452;
+    }
+
+    private synchronized void enqueue(EmailWork work) {
+        if (shutdown) {
+            System.err.println("Dropped email, sender is shut down");
+            work.onFailed();
+            return;
+        }
+        emailWorkList.offer(work, work.getLane());
+    }
+
+    private void retryLater(EmailWork work, long delayMillis) {
+        try {
+            retryExecutorService.schedule(() -> enqueue(work), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException cause) {
+            enqueue(work);
+        }
     }
 
     public static class EmailWork {
 
         private final Message message;
         private final String sessionId;
+        private final Lane lane;
+        private final DeliveryListener deliveryListener;
+        private int attempts;
 
         public EmailWork(Message message, String sessionId) {
+            this(message, sessionId, Lane.INTERACTIVE);
+        }
+
+        public EmailWork(Message message, String sessionId, Lane lane) {
+            this(message, sessionId, lane, DeliveryListener.NONE);
+        }
+
+        public EmailWork(Message message, String sessionId, Lane lane, DeliveryListener deliveryListener) {
             this.message = message;
             this.sessionId = sessionId;
+            this.lane = lane;
+            this.deliveryListener = deliveryListener == null ? DeliveryListener.NONE : deliveryListener;
         }
 
         public Message getMessage() {
@@ -79,11 +237,35 @@ public final class EmailSender {
             return sessionId;
         }
 
+        public Lane getLane() {
+            return lane;
+        }
+
+        private boolean retry() {
+            return ++attempts < MAX_ATTEMPTS;
+        }
+
+        private void onSent() {
+            try {
+                deliveryListener.onSent(sessionId);
+            } catch (RuntimeException cause) {
+                System.err.println("Failed to report email delivery: " + cause);
+            }
+        }
+
+        private void onFailed() {
+            try {
+                deliveryListener.onFailed(sessionId);
+            } catch (RuntimeException cause) {
+                System.err.println("Failed to report email delivery: " + cause);
+            }
+        }
+
     }
 
     public class Worker implements Runnable {
 
-        private boolean work = true;
+        private volatile boolean work = true;
 
         public void terminate() {
             this.work = false;
@@ -92,24 +274,80 @@ public final class EmailSender {
         @Override
         public void run() {
             while (work) {
+                EmailWork emailWork;
                 try {
-                    sendMails(emailWorkList.poll());
-                } catch (MessagingException cause) {
-                    // handle exception
+                    emailWork = emailWorkList.take();
+                } catch (InterruptedException cause) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    sendMail(emailWork);
+                } catch (RuntimeException cause) {
+                    System.err.println("Failed to send email: " + cause);
+                    emailWork.onFailed();
                 }
             }
         }
 
-        private void sendMails(EmailWork firstWork) throws MessagingException {
-            Session session = mailSessionProvider.getSession();
-            try (Transport transport = session.getTransport()) {
-                transport.connect();
-                for (EmailWork work = firstWork; emailWorkList.peek() != null; work = emailWorkList.poll()) {
-                    Message message = work.getMessage();
+        /**
+         * Sends the message through the next relay by weight, failing over to the remaining relays.
+         * Each attempt holds one of the relay's adaptive concurrency slots. Relays without a free slot are
+         * skipped; if that left the message unsent it is queued again shortly, without spending an attempt,
+         * since a full limiter says nothing about the relay. If relays only answered with throttle replies,
+         * the message is queued again after a back-off. Neither case holds this worker, and only a message
+         * that every relay refused or failed is reported to the circuit breaker.
+         */
+        private void sendMail(EmailWork work) {
+            Message message = work.getMessage();
+            Set<SmtpRelay> triedRelays = new HashSet<>();
+            boolean busy = false;
+            boolean throttled = false;
+            long start = System.nanoTime();
+            SmtpRelay relay;
+            while ((relay = relayPool.select(triedRelays)) != null) {
+                triedRelays.add(relay);
+                if (!relay.getConcurrencyLimiter().tryAcquire()) {
+                    busy = true;
+                    continue;
+                }
+                long attemptStart = System.nanoTime();
+                Transport transport = null;
+                try {
+                    transport = relay.getConnectionPool().borrow();
+                    long sendStart = System.nanoTime();
                     transport.sendMessage(message, message.getAllRecipients());
-                    // update key value store on status
+                    long end = System.nanoTime();
+                    relay.getConnectionPool().release(transport);
+                    relay.onSuccess(end - attemptStart, end - sendStart);
+                    circuitBreaker.onSuccess(end - start);
+                    work.onSent();
+                    return;
+                } catch (MessagingException | RuntimeException cause) {
+                    if (transport != null) {
+                        relay.getConnectionPool().invalidate(transport);
+                    }
+                    if (cause instanceof MessagingException && isThrottled((MessagingException) cause)) {
+                        relay.onThrottled();
+                        throttled = true;
+                    } else {
+                        relay.onFailure(System.nanoTime() - attemptStart);
+                    }
+                    System.err.println("Failed to send email through " + relay.getConfiguration() + ": "
+                            + cause.getMessage());
                 }
             }
+            if (busy) {
+                retryLater(work, SLOT_RETRY_MILLIS);
+                return;
+            }
+            if (throttled && work.retry()) {
+                retryLater(work, THROTTLE_BACKOFF_MILLIS);
+                return;
+            }
+            System.err.println("Failed to send email on every relay, giving up");
+            circuitBreaker.onError(System.nanoTime() - start);
+            work.onFailed();
         }
 
     }
@@ -31,7 +31,7 @@ public class MailSessionProvider {
     private final Properties properties;
     private final String userName;
     private final String password;
-    private static Session session;
+    private Session session;
 
     public MailSessionProvider(Properties properties, String userName, String password) {
         this.properties = properties;
@@ -39,7 +39,7 @@ public class MailSessionProvider {
         this.password = password;
     }
 
-    public Session getSession() {
+    public synchronized Session getSession() {
         if (session == null) {
             session = Session.getInstance(properties,
                     new javax.mail.Authenticator() {
@@ -0,0 +1,100 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+
+/**
+ * Keeps connected SMTP transports of a single relay for reuse, so consecutive sends skip the
+ * connect, greeting and authentication round trips.
+ */
+public final class SmtpConnectionPool {
+
+    private static final long MAX_IDLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final MailSessionProvider mailSessionProvider;
+    private final BlockingDeque<PooledTransport> idleTransports;
+
+    public SmtpConnectionPool(MailSessionProvider mailSessionProvider, int maxIdle) {
+        this.mailSessionProvider = mailSessionProvider;
+        this.idleTransports = new LinkedBlockingDeque<>(maxIdle);
+    }
+
+    /**
+     * Returns an idle connected transport or connects a new one.
+     *
+     * @return Transport
+     * @throws MessagingException
+     */
+    public Transport borrow() throws MessagingException {
+        long now = System.nanoTime();
+        for (PooledTransport pooled = idleTransports.pollFirst(); pooled != null;
+                pooled = idleTransports.pollFirst()) {
+            if (now - pooled.releasedAt < MAX_IDLE_NANOS && pooled.transport.isConnected()) {
+                return pooled.transport;
+            }
+            close(pooled.transport);
+        }
+        Transport transport = mailSessionProvider.getSession().getTransport();
+        transport.connect();
+        return transport;
+    }
+
+    public void release(Transport transport) {
+        if (!transport.isConnected() || !idleTransports.offerFirst(new PooledTransport(transport, System.nanoTime()))) {
+            close(transport);
+        }
+    }
+
+    public void invalidate(Transport transport) {
+        close(transport);
+    }
+
+    public void close() {
+        for (PooledTransport pooled = idleTransports.pollFirst(); pooled != null;
+                pooled = idleTransports.pollFirst()) {
+            close(pooled.transport);
+        }
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException cause) {
+            // connection is already unusable
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private final long releasedAt;
+
+        private PooledTransport(Transport transport, long releasedAt) {
+            this.transport = transport;
+            this.releasedAt = releasedAt;
+        }
+
+    }
+
+}
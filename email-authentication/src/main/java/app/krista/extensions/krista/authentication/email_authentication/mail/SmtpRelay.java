@@ -0,0 +1,208 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One configured SMTP relay with its own connection pool, adaptive concurrency limit, passive health state
+ * and send metrics. A relay is ejected after consecutive failures and becomes eligible again once its
+ * ejection expires; a failure on that first probe ejects it again for twice as long. Throttling replies
+ * only shrink the concurrency limit, they don't count as failures.
+ */
+public final class SmtpRelay {
+
+    private static final int FAILURES_BEFORE_EJECTION = 3;
+    private static final long BASE_EJECTION_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long MAX_EJECTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final EmailConfiguration.Relay configuration;
+    private final MailSessionProvider mailSessionProvider;
+    private final SmtpConnectionPool connectionPool;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder failedMessages = new LongAdder();
+    private final LongAdder throttledMessages = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+
+    private int consecutiveFailures;
+    private int ejections;
+    private boolean ejected;
+    private long ejectedUntil;
+    int currentWeight;
+
+    public SmtpRelay(EmailConfiguration.Relay configuration, MailSessionProvider mailSessionProvider,
+            int maxConnections) {
+        this.configuration = configuration;
+        this.mailSessionProvider = mailSessionProvider;
+        this.connectionPool = new SmtpConnectionPool(mailSessionProvider, maxConnections);
+        this.concurrencyLimiter = new AdaptiveConcurrencyLimiter(Math.min(2, maxConnections), 1, maxConnections);
+    }
+
+    public EmailConfiguration.Relay getConfiguration() {
+        return configuration;
+    }
+
+    public MailSessionProvider getMailSessionProvider() {
+        return mailSessionProvider;
+    }
+
+    public SmtpConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    synchronized boolean isAvailable(long now) {
+        return !ejected || now >= ejectedUntil;
+    }
+
+    synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * Records a delivered message.
+     *
+     * @param durationNanos time including connection setup
+     * @param rttNanos time the relay took to accept the message, which drives the concurrency limit
+     */
+    public void onSuccess(long durationNanos, long rttNanos) {
+        sentMessages.increment();
+        sendNanos.add(durationNanos);
+        concurrencyLimiter.onSuccess(rttNanos);
+        synchronized (this) {
+            consecutiveFailures = 0;
+            if (ejected) {
+                ejected = false;
+                ejections = 0;
+                System.out.println("SMTP relay " + configuration + " is healthy again");
+            }
+        }
+    }
+
+    public void onThrottled() {
+        throttledMessages.increment();
+        concurrencyLimiter.onThrottled();
+    }
+
+    public void onFailure(long durationNanos) {
+        failedMessages.increment();
+        sendNanos.add(durationNanos);
+        concurrencyLimiter.onIgnored();
+        synchronized (this) {
+            consecutiveFailures++;
+            if (ejected || consecutiveFailures >= FAILURES_BEFORE_EJECTION) {
+                long ejection = Math.min(BASE_EJECTION_NANOS << Math.min(ejections, 10), MAX_EJECTION_NANOS);
+                ejections++;
+                ejected = true;
+                ejectedUntil = System.nanoTime() + ejection;
+                System.out.println("SMTP relay " + configuration + " ejected for "
+                        + TimeUnit.NANOSECONDS.toSeconds(ejection) + "s");
+            }
+        }
+    }
+
+    public Metrics getMetrics() {
+        long sent = sentMessages.sum();
+        long failed = failedMessages.sum();
+        long total = sent + failed;
+        return new Metrics(configuration.toString(), configuration.getWeight(), isAvailable(System.nanoTime()),
+                sent, failed, throttledMessages.sum(), concurrencyLimiter.getLimit(),
+                total == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sendNanos.sum() / total));
+    }
+
+    public void close() {
+        connectionPool.close();
+    }
+
+    public static final class Metrics {
+
+        private final String relay;
+        private final int weight;
+        private final boolean healthy;
+        private final long sentMessages;
+        private final long failedMessages;
+        private final long throttledMessages;
+        private final int concurrencyLimit;
+        private final long meanSendMillis;
+
+        public Metrics(String relay, int weight, boolean healthy, long sentMessages, long failedMessages,
+                long throttledMessages, int concurrencyLimit, long meanSendMillis) {
+            this.relay = relay;
+            this.weight = weight;
+            this.healthy = healthy;
+            this.sentMessages = sentMessages;
+            this.failedMessages = failedMessages;
+            this.throttledMessages = throttledMessages;
+            this.concurrencyLimit = concurrencyLimit;
+            this.meanSendMillis = meanSendMillis;
+        }
+
+        public String getRelay() {
+            return relay;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getSentMessages() {
+            return sentMessages;
+        }
+
+        public long getFailedMessages() {
+            return failedMessages;
+        }
+
+        public long getThrottledMessages() {
+            return throttledMessages;
+        }
+
+        public int getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        public long getMeanSendMillis() {
+            return meanSendMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "{relay='" + relay + '\'' +
+                    ", weight=" + weight +
+                    ", healthy=" + healthy +
+                    ", sentMessages=" + sentMessages +
+                    ", failedMessages=" + failedMessages +
+                    ", throttledMessages=" + throttledMessages +
+                    ", concurrencyLimit=" + concurrencyLimit +
+                    ", meanSendMillis=" + meanSendMillis +
+                    '}';
+        }
+
+    }
+
+}
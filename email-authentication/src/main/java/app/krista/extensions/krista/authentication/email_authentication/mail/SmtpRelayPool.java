@@ -0,0 +1,96 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Spreads sends across the configured relays with smooth weighted round robin, skipping ejected relays.
+ * When every relay is ejected the one that comes back first is used, so mail is never dropped on the floor
+ * just because all relays had a bad minute.
+ */
+public final class SmtpRelayPool {
+
+    private final List<SmtpRelay> relays;
+
+    public SmtpRelayPool(List<SmtpRelay> relays) {
+        if (relays == null || relays.isEmpty()) {
+            throw new IllegalArgumentException("At least one SMTP relay is required.");
+        }
+        this.relays = List.copyOf(relays);
+    }
+
+    /**
+     * Picks the next relay that is not in the excluded set, or null if all relays were excluded.
+     *
+     * @param excluded relays already tried for the current message
+     * @return SmtpRelay
+     */
+    public synchronized SmtpRelay select(Set<SmtpRelay> excluded) {
+        long now = System.nanoTime();
+        SmtpRelay selected = null;
+        int totalWeight = 0;
+        for (SmtpRelay relay : relays) {
+            if (excluded.contains(relay) || !relay.isAvailable(now)) {
+                continue;
+            }
+            relay.currentWeight += relay.getConfiguration().getWeight();
+            totalWeight += relay.getConfiguration().getWeight();
+            if (selected == null || relay.currentWeight > selected.currentWeight) {
+                selected = relay;
+            }
+        }
+        if (selected != null) {
+            selected.currentWeight -= totalWeight;
+            return selected;
+        }
+        for (SmtpRelay relay : relays) {
+            if (!excluded.contains(relay)
+                    && (selected == null || relay.getEjectedUntil() < selected.getEjectedUntil())) {
+                selected = relay;
+            }
+        }
+        return selected;
+    }
+
+    public List<SmtpRelay> getRelays() {
+        return relays;
+    }
+
+    public int size() {
+        return relays.size();
+    }
+
+    public List<SmtpRelay.Metrics> getMetrics() {
+        List<SmtpRelay.Metrics> metrics = new ArrayList<>(relays.size());
+        for (SmtpRelay relay : relays) {
+            metrics.add(relay.getMetrics());
+        }
+        return metrics;
+    }
+
+    public void close() {
+        for (SmtpRelay relay : relays) {
+            relay.close();
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * One SSLContext shared by all SMTP relays. Its client session cache lets reconnects to a relay resume
+ * the previous TLS session instead of doing a full handshake. Every handshake is timed, split into full
+ * and resumed handshakes, so the saving can be read off {@link #getStatistics()}.
+ */
+public final class SmtpTlsContext {
+
+    private static final int SESSION_CACHE_SIZE = 256;
+    private static final int SESSION_TIMEOUT_SECONDS = (int) TimeUnit.HOURS.toSeconds(4);
+
+    private final SSLSocketFactory socketFactory;
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder fullHandshakeNanos = new LongAdder();
+    private final LongAdder resumedHandshakes = new LongAdder();
+    private final LongAdder resumedHandshakeNanos = new LongAdder();
+
+    public SmtpTlsContext() {
+        try {
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            sessionContext.setSessionCacheSize(SESSION_CACHE_SIZE);
+            sessionContext.setSessionTimeout(SESSION_TIMEOUT_SECONDS);
+            this.socketFactory = new TimedSocketFactory(sslContext.getSocketFactory());
+        } catch (GeneralSecurityException cause) {
+            throw new IllegalStateException("Failed to initialize TLS context for SMTP.", cause);
+        }
+    }
+
+    public SSLSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    public Statistics getStatistics() {
+        return new Statistics(fullHandshakes.sum(), mean(fullHandshakeNanos.sum(), fullHandshakes.sum()),
+                resumedHandshakes.sum(), mean(resumedHandshakeNanos.sum(), resumedHandshakes.sum()));
+    }
+
+    private static double mean(long nanos, long count) {
+        return count == 0 ? 0 : nanos / (count * 1_000_000.0);
+    }
+
+    private void onHandshakeCompleted(HandshakeCompletedEvent event, long startNanos, long startMillis) {
+        long duration = System.nanoTime() - startNanos;
+        if (event.getSession().getCreationTime() < startMillis) {
+            resumedHandshakes.increment();
+            resumedHandshakeNanos.add(duration);
+        } else {
+            fullHandshakes.increment();
+            fullHandshakeNanos.add(duration);
+        }
+    }
+
+    public static final class Statistics {
+
+        private final long fullHandshakes;
+        private final double meanFullHandshakeMillis;
+        private final long resumedHandshakes;
+        private final double meanResumedHandshakeMillis;
+
+        public Statistics(long fullHandshakes, double meanFullHandshakeMillis, long resumedHandshakes,
+                double meanResumedHandshakeMillis) {
+            this.fullHandshakes = fullHandshakes;
+            this.meanFullHandshakeMillis = meanFullHandshakeMillis;
+            this.resumedHandshakes = resumedHandshakes;
+            this.meanResumedHandshakeMillis = meanResumedHandshakeMillis;
+        }
+
+        public long getFullHandshakes() {
+            return fullHandshakes;
+        }
+
+        public double getMeanFullHandshakeMillis() {
+            return meanFullHandshakeMillis;
+        }
+
+        public long getResumedHandshakes() {
+            return resumedHandshakes;
+        }
+
+        public double getMeanResumedHandshakeMillis() {
+            return meanResumedHandshakeMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "{fullHandshakes=" + fullHandshakes +
+                    ", meanFullHandshakeMillis=" + meanFullHandshakeMillis +
+                    ", resumedHandshakes=" + resumedHandshakes +
+                    ", meanResumedHandshakeMillis=" + meanResumedHandshakeMillis +
+                    '}';
+        }
+
+    }
+
+    /**
+     * Delegating factory that times the handshake of every socket it creates.
+     */
+    private final class TimedSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+
+        private TimedSocketFactory(SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        private Socket timed(Socket socket) {
+            if (socket instanceof SSLSocket) {
+                long startNanos = System.nanoTime();
+                long startMillis = System.currentTimeMillis();
+                ((SSLSocket) socket).addHandshakeCompletedListener(
+                        event -> onHandshakeCompleted(event, startNanos, startMillis));
+            }
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return timed(delegate.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+            return timed(delegate.createSocket(socket, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return timed(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return timed(delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return timed(delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return timed(delegate.createSocket(address, port, localAddress, localPort));
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.mail;
+
+import java.util.Properties;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Builds the javax.mail session properties of a relay from its protocol:
+ * plain SMTP with opportunistic STARTTLS on port 25, mandatory STARTTLS on 587 and implicit TLS on 465.
+ * All variants use the shared TLS socket factory so sessions can be resumed across reconnects.
+ */
+public final class SmtpTransportProperties {
+
+    private static final String TIMEOUT_MILLIS = "10000";
+
+    private SmtpTransportProperties() {
+    }
+
+    public static Properties create(EmailConfiguration configuration, EmailConfiguration.Relay relay,
+            SSLSocketFactory socketFactory) {
+        Properties properties = new Properties();
+        properties.put("mail.transport.protocol", "smtp");
+        properties.put("mail.smtp.host", relay.getHost());
+        properties.put("mail.smtp.port", String.valueOf(relay.getPort()));
+        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.connectiontimeout", TIMEOUT_MILLIS);
+        properties.put("mail.smtp.timeout", TIMEOUT_MILLIS);
+        properties.put("mail.smtp.writetimeout", TIMEOUT_MILLIS);
+        if (configuration.getSenderEmailAddress() != null && !configuration.getSenderEmailAddress().isBlank()) {
+            properties.put("mail.smtp.from", configuration.getSenderEmailAddress());
+        }
+        properties.put("mail.smtp.ssl.socketFactory", socketFactory);
+        properties.put("mail.smtp.ssl.checkserveridentity", "true");
+        switch (relay.getProtocol()) {
+            case SMTP:
+                properties.put("mail.smtp.starttls.enable", "true");
+                break;
+            case START_TLS:
+                properties.put("mail.smtp.starttls.enable", "true");
+                properties.put("mail.smtp.starttls.required", "true");
+                break;
+            case SMTPS:
+            default:
+                properties.put("mail.smtp.ssl.enable", "true");
+        }
+        return properties;
+    }
+
+}
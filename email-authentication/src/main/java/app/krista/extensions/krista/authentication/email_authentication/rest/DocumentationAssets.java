@@ -0,0 +1,66 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import app.krista.extensions.krista.authentication.email_authentication.utils.HtmlTemplate;
+import app.krista.extensions.krista.authentication.email_authentication.utils.StaticAssets;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * The documentation tab, compressed and hashed once at startup.
+ * Scripts and styles are referenced from index.html with their combined content hash, so they are cached as
+ * immutable; the page and the markdown files are revalidated with their ETags.
+ */
+@Service
+public final class DocumentationAssets {
+
+    static final String ROOT = "docs/";
+    static final String INDEX = "index.html";
+    private static final List<String> VERSIONED_ASSETS = List.of("assets/docsify.js", "assets/search-min.js",
+            "assets/vue.css", "assets/theme-simple.css");
+    private static final List<String> PAGES = List.of("README.md", "_sidebar.md", "pages/APIEndpoints.md",
+            "pages/Authentication.md", "pages/Dependencies.md", "pages/ExtensionConfiguration.md",
+            "pages/ReleaseNotes.md", "pages/Troubleshooting.md");
+
+    private final StaticAssets assets = new StaticAssets();
+
+    public DocumentationAssets() {
+        ClassLoader classLoader = DocumentationAssets.class.getClassLoader();
+        StringBuilder versions = new StringBuilder();
+        for (String path : VERSIONED_ASSETS) {
+            versions.append(assets.add(path, StaticAssets.read(classLoader, ROOT + path), true).getVersion());
+        }
+        for (String path : PAGES) {
+            assets.add(path, StaticAssets.read(classLoader, ROOT + path), false);
+        }
+        String assetsVersion = StaticAssets.hash(versions.toString().getBytes(StandardCharsets.UTF_8));
+        String index = HtmlTemplate.get(classLoader, ROOT + INDEX).render(Map.of("__assetsVersion", assetsVersion));
+        assets.add(INDEX, index.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    public Response respond(String path, HttpHeaders headers) {
+        return assets.respond(path, headers);
+    }
+
+}
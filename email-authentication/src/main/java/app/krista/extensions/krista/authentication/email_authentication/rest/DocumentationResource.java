@@ -0,0 +1,70 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.net.URI;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Serves the documentation tab from the prepared {@link DocumentationAssets}.
+ */
+@Path("/docs")
+public class DocumentationResource {
+
+    private final DocumentationAssets documentationAssets;
+
+    @Inject
+    public DocumentationResource(DocumentationAssets documentationAssets) {
+        this.documentationAssets = documentationAssets;
+    }
+
+    /**
+     * Serves the documentation page. The page refers to its assets relative to {@code .../docs}, so a request
+     * for {@code .../docs/} is redirected there first.
+     *
+     * @param headers
+     * @param uriInfo
+     * @return Response
+     */
+    @GET
+    public Response getIndex(@Context HttpHeaders headers, @Context UriInfo uriInfo) {
+        URI requestUri = uriInfo.getRequestUri();
+        String path = requestUri.getRawPath();
+        if (path != null && path.endsWith("/")) {
+            String query = requestUri.getRawQuery();
+            URI location = URI.create(path.replaceAll("/+$", "") + (query == null ? "" : "?" + query));
+            return Response.status(Response.Status.MOVED_PERMANENTLY).location(location).build();
+        }
+        return documentationAssets.respond(DocumentationAssets.INDEX, headers);
+    }
+
+    @GET
+    @Path("{path: .+}")
+    public Response getAsset(@PathParam("path") String path, @Context HttpHeaders headers) {
+        return documentationAssets.respond(path, headers);
+    }
+
+}
@@ -19,8 +19,11 @@
 package app.krista.extensions.krista.authentication.email_authentication.rest;
 
 import java.util.Set;
+import javax.inject.Inject;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
+import app.krista.extension.common.KristaExceptionMapper;
+import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
 import org.jvnet.hk2.annotations.ContractsProvided;
 import org.jvnet.hk2.annotations.Service;
 
@@ -29,9 +32,26 @@ import org.jvnet.hk2.annotations.Service;
 @ApplicationPath("/")
 public class EmailAuthenticationApplication extends Application {
 
+    private final KristaExceptionMapper exceptionMapper =
+            new KristaExceptionMapper(EmailAuthenticationConstants.AUTHENTICATION_TYPE);
+    private final LoginRateLimitFilter loginRateLimitFilter;
+    private final RequestMetricsFilter requestMetricsFilter;
+
+    @Inject
+    public EmailAuthenticationApplication(LoginRateLimitFilter loginRateLimitFilter,
+            RequestMetricsFilter requestMetricsFilter) {
+        this.loginRateLimitFilter = loginRateLimitFilter;
+        this.requestMetricsFilter = requestMetricsFilter;
+    }
+
     @Override
     public Set<Class<?>> getClasses() {
-        return Set.of(EmailAuthenticationResource.class);
+        return Set.of(EmailAuthenticationResource.class, DocumentationResource.class, MetricsResource.class);
+    }
+
+    @Override
+    public Set<Object> getSingletons() {
+        return Set.of(exceptionMapper, loginRateLimitFilter, requestMetricsFilter);
     }
 
 }
@@ -22,10 +22,13 @@ import java.io.IOException;
 import java.util.Map;
 import javax.inject.Inject;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import app.krista.extension.common.ValidationException;
 import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
 import app.krista.extensions.krista.authentication.email_authentication.utils.Resources;
 
@@ -39,10 +42,12 @@ import static app.krista.extensions.krista.authentication.email_authentication.E
 public class EmailAuthenticationResource {
 
     private final EmailService emailService;
+    private final RequestExecutor requestExecutor;
 
     @Inject
-    public EmailAuthenticationResource(EmailService emailService) {
+    public EmailAuthenticationResource(EmailService emailService, RequestExecutor requestExecutor) {
         this.emailService = emailService;
+        this.requestExecutor = requestExecutor;
     }
 
     /**
@@ -65,9 +70,9 @@ public class EmailAuthenticationResource {
     @POST
     @Path("/login")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response sendLoginLink(@FormParam("originalUrl") String originalUrl, @FormParam("email") String email)
-            throws IOException {
-        return emailService.sendLoginLink(originalUrl, email);
+    public void sendLoginLink(@FormParam("originalUrl") String originalUrl, @FormParam("email") String email,
+            @Suspended AsyncResponse asyncResponse) {
+        requestExecutor.execute(asyncResponse, () -> emailService.sendLoginLink(originalUrl, email));
     }
 
     /**
@@ -79,27 +84,47 @@ public class EmailAuthenticationResource {
     @Path("/waiting")
     public Response getWaitingPage(@CookieParam(X_KRISTA_SESSION_ID) String sessionId) throws IOException {
         return Resources.getTranslatedResource(getClass(), "waiting.html",
-                Map.of("__sessionId", sessionId));
+                Map.of("__sessionId", sessionId, "__asyncLogin", String.valueOf(emailService.isAsyncLogin())));
+    }
+
+    /**
+     * Returns the progress of the login link of the waiting page session as JSON with the state PENDING, SENT or
+     * FAILED and an error message for FAILED.
+     *
+     * @return Response
+     */
+    @GET
+    @Path("/status")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLoginStatus(@CookieParam(X_KRISTA_SESSION_ID) String sessionId) throws IOException {
+        return Response.ok(emailService.getLoginStatus(sessionId).toJson(), MediaType.APPLICATION_JSON).build();
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response verifySecretLink(@Context HttpHeaders headers,
+    public void verifySecretLink(@Context HttpHeaders headers,
             @QueryParam(EmailAuthenticationConstants.X_KRISTA_ORIGINAL_URL) String originalUrl,
-            @QueryParam("code") String code) {
-        try {
-            return emailService.verifySecretLink(originalUrl, code);
-        } catch (Exception cause) {
-            throw new IllegalStateException("Failed to verify email.", cause);
-        }
+            @QueryParam("code") String code, @Suspended AsyncResponse asyncResponse) {
+        requestExecutor.execute(asyncResponse, () -> {
+            try {
+                return emailService.verifySecretLink(originalUrl, code);
+            } catch (ValidationException cause) {
+                throw cause;
+            } catch (Exception cause) {
+                throw new IllegalStateException("Failed to verify email.", cause);
+            }
+        });
     }
 
     @POST
     @Path("/logout")
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
-    public void logout(@CookieParam(X_KRISTA_SESSION_ID) String sessionId) throws IOException {
-        emailService.logout(sessionId);
+    public void logout(@CookieParam(X_KRISTA_SESSION_ID) String sessionId, @Suspended AsyncResponse asyncResponse) {
+        requestExecutor.execute(asyncResponse, () -> {
+            emailService.logout(sessionId);
+            return Response.noContent().build();
+        });
     }
 
 }
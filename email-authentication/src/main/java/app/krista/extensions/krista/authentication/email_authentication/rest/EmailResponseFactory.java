@@ -24,11 +24,11 @@ import java.util.Map;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
+import app.krista.extension.common.EmailAddress;
 import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
 import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributes;
 import app.krista.extensions.krista.authentication.email_authentication.impl.LocationProvider;
 import app.krista.extensions.krista.authentication.email_authentication.utils.Cookies;
-import app.krista.extensions.krista.authentication.email_authentication.utils.EmailAddresses;
 import app.krista.extensions.krista.authentication.email_authentication.utils.Resources;
 import app.krista.ksdk.accounts.Account;
 
@@ -38,29 +38,51 @@ import app.krista.ksdk.accounts.Account;
 public final class EmailResponseFactory {
 
     /**
-     * Validates EmailInvokerAttributes and returns javax.ws.rs.core.Response.
+     * Returns the error shown on the login page if the email domain is not in the supported domains, else null.
+     *
+     * @param attributes
+     * @param email
+     * @return String
+     */
+    static String getUnsupportedDomainError(EmailInvokerAttributes attributes, EmailAddress email) {
+        if (!attributes.getDomainPolicy().allowsEmail(email)) {
+            return "Your domain is not supported: " + email;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the error shown on the login page if the account does not exist and new account creation is
+     * disabled, else null.
      *
      * @param account
      * @param attributes
      * @param email
+     * @return String
+     */
+    static String getMissingAccountError(Account account, EmailInvokerAttributes attributes, EmailAddress email) {
+        if (account == null && !attributes.supportsNewAccountCreation()) {
+            System.out.println("Access denied for " + email + " because the account does not exist");
+            return "Login failure for: " + email;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the login page with the error of a rejected login link request, else the waiting page redirection.
+     *
+     * @param outcome
      * @param originalUrl
+     * @param locationProvider
      * @return Response
      * @throws IOException
      */
-    static Response create(Account account, EmailInvokerAttributes attributes, String email, String originalUrl)
+    static Response create(LoginOutcome outcome, String originalUrl, LocationProvider locationProvider)
             throws IOException {
-        Response response = null;
-        if (!attributes.supportsAllDomains()
-                && !attributes.getSupportedDomains().contains(EmailAddresses.getDomainName(email))) {
-            response = create(originalUrl, Map.of("__error", "Your domain is not supported: " + email));
-        }
-        if (account == null) {
-            if (!attributes.supportsNewAccountCreation()) {
-                System.out.println("Access denied for " + email + " because the account does not exist");
-                response = create(originalUrl, Map.of("__error", "Login failure for: " + email));
-            }
+        if (outcome.isRejected()) {
+            return create(originalUrl, Map.of("__error", outcome.getError()));
         }
-        return response;
+        return create(locationProvider, outcome.getSessionId());
     }
 
     /**
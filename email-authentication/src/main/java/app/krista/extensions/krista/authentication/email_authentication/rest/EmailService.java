@@ -21,31 +21,40 @@ package app.krista.extensions.krista.authentication.email_authentication.rest;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.mail.MessagingException;
 import javax.ws.rs.core.Response;
 import app.krista.extension.common.CommonUtils;
+import app.krista.extension.common.DomainPolicy;
+import app.krista.extension.common.EmailAddress;
+import app.krista.extension.common.ValidationException;
+import app.krista.extension.common.WorkspaceDomains;
 import app.krista.extension.executor.Invoker;
 import app.krista.extension.request.RoutingInfo;
 import app.krista.extension.request.protos.http.HttpProtocol;
 import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
 import app.krista.extensions.krista.authentication.email_authentication.impl.*;
-import app.krista.extensions.krista.authentication.email_authentication.mail.EmailSender;
-import app.krista.extensions.krista.authentication.email_authentication.mail.MailSessionProvider;
-import app.krista.extensions.krista.authentication.email_authentication.utils.EmailAddresses;
-import app.krista.ksdk.accounts.Account;
+import app.krista.extensions.krista.authentication.email_authentication.mail.DeliveryListener;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatcher;
+import app.krista.extensions.krista.authentication.email_authentication.utils.SingleFlight;
+import app.krista.ksdk.accounts.ModifiableAccount;
 import app.krista.ksdk.authentication.AuthenticationSettings;
-import app.krista.ksdk.authorization.ModifiableRole;
 import org.jvnet.hk2.annotations.Service;
 
-import static app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants.*;
-
 @Service
 public class EmailService {
 
+    private static final int LOGIN_THREADS = 8;
+    private static final int LOGIN_QUEUE_CAPACITY = 256;
+    private static final String DELIVERY_FAILED = "We could not send your login link. Please try again.";
+
     private final Invoker invoker;
     private final VerificationLinkManager verificationLinkManager;
     private final SessionManager sessionManager;
@@ -53,7 +62,27 @@ public class EmailService {
     private final EmailInvokerAttributesProvider invokerAttributesProvider;
     private final AccountProvisioner accountProvisioner;
     private final RoleProvisioner roleProvisioner;
-    private final AuthenticationSettings authenticationSettings;
+    private final WorkspaceDomains workspaceDomains;
+    private final EmailDispatcher emailDispatcher;
+    private final LoginStages loginStages;
+    private final SingleFlight<List<String>, LoginOutcome> loginFlights = new SingleFlight<>();
+    private final DeliveryListener loginStatusRecorder = new DeliveryListener() {
+        @Override
+        public void onSent(String sessionId) {
+            setLoginStatus(sessionId, LoginStatus.sent());
+        }
+
+        @Override
+        public void onFailed(String sessionId) {
+            setLoginStatus(sessionId, LoginStatus.failed(DELIVERY_FAILED));
+        }
+    };
+    private final ThreadPoolExecutor loginExecutor = new ThreadPoolExecutor(LOGIN_THREADS, LOGIN_THREADS,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(LOGIN_QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "email-login");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     @Inject
     public EmailService(@Named("self") Invoker invoker,
@@ -63,7 +92,9 @@ public class EmailService {
             EmailInvokerAttributesProvider invokerAttributesProvider,
             AccountProvisioner accountProvisioner,
             RoleProvisioner roleProvisioner,
-            AuthenticationSettings authenticationSettings) {
+            AuthenticationSettings authenticationSettings,
+            EmailDispatcher emailDispatcher,
+            LoginStages loginStages) {
         this.verificationLinkManager = emailAuthenticationStore;
         this.invoker = invoker;
         this.sessionManager = sessionManager;
@@ -71,12 +102,24 @@ public class EmailService {
         this.roleProvisioner = roleProvisioner;
         this.invokerAttributesProvider = invokerAttributesProvider;
         this.locationProvider = locationProvider;
-        this.authenticationSettings = authenticationSettings;
+        this.workspaceDomains = new WorkspaceDomains(authenticationSettings);
+        this.emailDispatcher = emailDispatcher;
+        this.loginStages = loginStages;
+        this.loginExecutor.allowCoreThreadTimeOut(true);
     }
 
     /**
      * This method validates email address and originalUrl input parameters
      * and show error html page in case of errors otherwise end email with secret link.
+     * Runs cheapest stage first and stops at the first one that rejects the request: syntax, domain policy,
+     * SMTP health, read only account lookup with the new account policy, provisioning and finally dispatch.
+     * Accounts this extension provisioned recently skip the lookup and provisioning stages.
+     * Nothing is written to the workspace or the key value store before the policy stages have passed.
+     * The email address is parsed and normalized once here; the later stages all work on the parsed value.
+     * Concurrent requests for the same email address and original URL (double clicks, client retries) share one
+     * login link and session; a request waiting for another one's result gives up when it is interrupted.
+     * In asynchronous login mode the request returns the waiting page redirection right after the SMTP health
+     * stage, and the remaining stages run on a bounded executor that reports their result as session status.
      *
      * @param originalUrl
      * @param email
@@ -84,95 +127,185 @@ public class EmailService {
      * @throws IOException
      */
     Response sendLoginLink(String originalUrl, String email) throws IOException {
-        validate(originalUrl == null || originalUrl.isBlank(), "OriginalUrl parameter is missing.");
-        validate(!EmailAddresses.isValidEmailAddress(email), "Email address '" + email + "' is not valid.");
-        String roles = invoker.getAttributes().get(DEFAULT_ROLES_FOR_NEW_ACCOUNT).toString();
-        Account account = accountProvisioner.provisionAccount(email, List.of(roles));
-        Response loginPageResponse =
-                EmailResponseFactory.create(account, invokerAttributesProvider.getAttributes(), email, originalUrl);
-        if (loginPageResponse != null) {
-            return loginPageResponse;
+        LoginStages.Trace trace = loginStages.start();
+        try {
+            validate(originalUrl == null || originalUrl.isBlank(), "OriginalUrl parameter is missing.");
+            EmailAddress emailAddress = EmailAddress.parse(email);
+            trace.passed(LoginStages.Stage.SYNTAX);
+            LoginOutcome outcome = loginFlights.execute(List.of(emailAddress.getNormalized(), originalUrl),
+                    () -> sendLoginLink(trace.lead(), originalUrl, emailAddress));
+            return EmailResponseFactory.create(outcome, originalUrl, locationProvider);
+        } finally {
+            trace.finish();
         }
-        if (account == null) {
-            account = provisionNewAccount(email);
+    }
+
+    private LoginOutcome sendLoginLink(LoginStages.Trace trace, String originalUrl, EmailAddress email)
+            throws IOException {
+        EmailInvokerAttributes attributes = invokerAttributesProvider.getAttributes();
+        String error = EmailResponseFactory.getUnsupportedDomainError(attributes, email);
+        if (error != null) {
+            return LoginOutcome.rejected(error);
+        }
+        trace.passed(LoginStages.Stage.DOMAIN_POLICY);
+
+        if (!emailDispatcher.tryAcquirePermission()) {
+            return LoginOutcome.rejected(
+                    "Email delivery is temporarily unavailable. Please try again in a few minutes.");
+        }
+        trace.passed(LoginStages.Stage.DELIVERY_HEALTH);
+
+        if (attributes.isAsyncLogin()) {
+            String sessionId = sessionManager.reserve();
+            LoginStages.Trace backgroundTrace = trace.handOff();
+            try {
+                loginExecutor.execute(() -> sendLoginLinkInBackground(backgroundTrace, attributes, sessionId,
+                        originalUrl, email));
+                return LoginOutcome.sent(sessionId);
+            } catch (RejectedExecutionException cause) {
+                System.out.println("Login executor is full, sending login link for " + email + " synchronously");
+                backgroundTrace.resume();
+                try {
+                    return sendLoginLink(backgroundTrace, attributes, sessionId, originalUrl, email);
+                } finally {
+                    backgroundTrace.finish();
+                }
+            }
+        }
+        return sendLoginLink(trace, attributes, sessionManager.reserve(), originalUrl, email);
+    }
+
+    /**
+     * Runs the account stages and the dispatch of an asynchronous login link request. A rejection or error is
+     * recorded as the session status, which the waiting page polls; once the link is queued the status is
+     * PENDING until the email sender reports the delivery outcome.
+     */
+    private void sendLoginLinkInBackground(LoginStages.Trace trace, EmailInvokerAttributes attributes,
+            String sessionId, String originalUrl, EmailAddress email) {
+        trace.resume();
+        try {
+            LoginOutcome outcome = sendLoginLink(trace, attributes, sessionId, originalUrl, email);
+            if (outcome.isRejected()) {
+                setLoginStatus(sessionId, LoginStatus.failed(outcome.getError()));
+            }
+        } catch (Exception cause) {
+            System.err.println("Failed to send login link for " + email + ": " + cause.getMessage());
+            setLoginStatus(sessionId, LoginStatus.failed(DELIVERY_FAILED));
+        } finally {
+            trace.finish();
+        }
+    }
+
+    private void setLoginStatus(String sessionId, LoginStatus loginStatus) {
+        try {
+            sessionManager.setStatus(sessionId, loginStatus);
+        } catch (IOException cause) {
+            System.err.println("Failed to store login status: " + cause.getMessage());
         }
-        assert account != null;
-        String sessionId = sessionManager.create(account.getAccountId());
-        sendLoginLink(email, sessionId, originalUrl, account.getAccountId());
-        return EmailResponseFactory.create(locationProvider, sessionId);
+    }
+
+    private LoginOutcome sendLoginLink(LoginStages.Trace trace, EmailInvokerAttributes attributes,
+            String sessionId, String originalUrl, EmailAddress email) throws IOException {
+        List<String> roleNames = roleProvisioner.getDefaultRoleNames();
+        String accountId = accountProvisioner.getProvisionedAccountId(email, roleNames);
+        if (accountId != null) {
+            trace.passed(LoginStages.Stage.ACCOUNT_LOOKUP);
+            trace.passed(LoginStages.Stage.PROVISIONING);
+        } else {
+            ModifiableAccount existingAccount = accountProvisioner.lookupAccount(email);
+            String error = EmailResponseFactory.getMissingAccountError(existingAccount, attributes, email);
+            if (error != null) {
+                return LoginOutcome.rejected(error);
+            }
+            trace.passed(LoginStages.Stage.ACCOUNT_LOOKUP);
+
+            accountId = accountProvisioner.provisionAccount(existingAccount, email, roleNames).getAccountId();
+            trace.passed(LoginStages.Stage.PROVISIONING);
+        }
+
+        sessionManager.create(sessionId, accountId);
+        sendLoginLink(email, sessionId, originalUrl, accountId, attributes.isAsyncLogin());
+        trace.passed(LoginStages.Stage.DISPATCH);
+        return LoginOutcome.sent(sessionId);
+    }
+
+    /**
+     * Returns true if login links are sent in the background and the waiting page should poll their status.
+     *
+     * @return boolean
+     */
+    boolean isAsyncLogin() {
+        return invokerAttributesProvider.getAttributes().isAsyncLogin();
+    }
+
+    /**
+     * Returns the progress of the login link sent for the session.
+     *
+     * @param sessionId
+     * @return LoginStatus
+     * @throws IOException
+     */
+    LoginStatus getLoginStatus(String sessionId) throws IOException {
+        validate(sessionId == null || sessionId.isBlank(), "Missing session id.");
+        return sessionManager.getStatus(sessionId);
     }
 
     Response verifySecretLink(String originalUrl, String code) throws IOException {
         VerificationLinkDetails secretDetails = verifySecretLink(code);
-        handleSupportedDomains(secretDetails, invokerAttributesProvider.getAttributes().supportsNewAccountCreation());
+        handleSupportedDomains(secretDetails, invokerAttributesProvider.getAttributes());
         String sessionId = sessionManager.create(secretDetails.getAccountId());
         return EmailResponseFactory.create(originalUrl, Map.of("Set-Cookie", sessionId));
     }
 
-    private void handleSupportedDomains(VerificationLinkDetails secretDetails, boolean supportsNewAccountCreation) {
-        List<String> supportedDomainsForWorkspace = authenticationSettings.getSupportedDomains();
-        String supportedDomain = String.join(",", supportedDomainsForWorkspace);
-        if (!supportsNewAccountCreation) {
+    private void handleSupportedDomains(VerificationLinkDetails secretDetails, EmailInvokerAttributes attributes) {
+        DomainPolicy workspacePolicy = workspaceDomains.getDomainPolicy();
+        if (!attributes.supportsNewAccountCreation()) {
             boolean isEmailDomainPresent =
-                    CommonUtils.isEmailDomainPresentInSupportedWorkspaceDomains(secretDetails.getEmail(),
-                            supportedDomain);
+                    CommonUtils.isEmailDomainAllowed(secretDetails.getEmail(), workspacePolicy);
             if (!isEmailDomainPresent) {
-                throw new IllegalArgumentException(
+                throw new ValidationException(
                         "ALLOW_AUTO_PERSON_CREATION is not enabled and domain for email '" + secretDetails.getEmail() +
                                 "' is not supported in workspace.");
             }
         }
-        Object invokerDomains = invoker.getAttributes().get(EmailAuthenticationConstants.SUPPORTED_DOMAINS);
-        if (invokerDomains != null) {
-            CommonUtils.validateIfSupportedDomain(secretDetails.getEmail(), supportedDomain, invokerDomains);
+        if (!attributes.supportsAllDomains()) {
+            CommonUtils.validateSupportedDomain(secretDetails.getEmail(), workspacePolicy,
+                    attributes.getDomainPolicy());
         }
     }
 
-    private Account provisionNewAccount(String email) {
-        ModifiableRole modifiableRole = roleProvisioner.provisionDefaultRole();
-        return accountProvisioner.provisionAccount(email, List.of(modifiableRole.getRoleId()));
-    }
-
-    private void sendLoginLink(String email, String sessionId, String originalUrl, String accountId) {
+    /**
+     * Stores the verification link and queues the email. In asynchronous login mode the session status is set to
+     * PENDING before the email is queued, and the email sender replaces it with SENT or FAILED.
+     */
+    private void sendLoginLink(EmailAddress email, String sessionId, String originalUrl, String accountId,
+            boolean asyncLogin) {
         try {
-            EmailAddresses.isValidEmailAddress(email);
             String secret = UUID.randomUUID().toString();
-            verificationLinkManager.add(new VerificationLinkDetails(email, secret, getExpiryTime(),
+            verificationLinkManager.add(new VerificationLinkDetails(email.getNormalized(), secret, getExpiryTime(),
                     VerificationLinkDetails.State.GENERATED.toString(), sessionId, accountId));
-            Properties properties = getProperties();
-            String accountEmail = invoker.getAttributes().get(SMTP_ACCOUNT).toString();
-            String accountPassword = invoker.getAttributes().get(SMTP_PASSWORD).toString();
-            MailSessionProvider mailSessionProvider =
-                    new MailSessionProvider(properties, accountEmail, accountPassword);
-            new EmailSender(mailSessionProvider).sendMessage(email, "Email Authentication Link",
+            if (asyncLogin) {
+                sessionManager.setStatus(sessionId, LoginStatus.pending());
+            }
+            emailDispatcher.dispatch(email.getNormalized(), "Email Authentication Link",
                     invoker.getRoutingInfo().getRoutingURL(
                             HttpProtocol.PROTOCOL_NAME, RoutingInfo.Type.APPLIANCE)
                             + "/authn/?code=" + secret + "&" + EmailAuthenticationConstants.X_KRISTA_ORIGINAL_URL +
-                            "=" + originalUrl, secret);
+                            "=" + originalUrl, sessionId, EmailDispatchQueue.Lane.INTERACTIVE,
+                    asyncLogin ? loginStatusRecorder : DeliveryListener.NONE);
         } catch (IOException | MessagingException cause) {
             cause.printStackTrace();
             throw new IllegalStateException(cause);
         }
     }
 
-    private Properties getProperties() {
-        Properties properties = new Properties();
-        properties.put("mail.smtp.host", invoker.getAttributes().get(SMTP_HOST));
-        properties.put("mail.smtp.port", invoker.getAttributes().get(SMTP_PORT));
-        properties.put("mail.smtp.auth", "true");
-        properties.put("mail.smtp.socketFactory.port", "465");
-        properties.put("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
-        properties.put("mail.smtp.ssl.checkserveridentity", "true");
-        return properties;
-    }
-
     private VerificationLinkDetails verifySecretLink(String secret) {
         try {
             VerificationLinkDetails verificationLinkDetails = verificationLinkManager.get(secret);
             validate(verificationLinkDetails == null, "Email verification link is not found.");
             if (verificationLinkDetails.getExpiry() < System.currentTimeMillis()) {
                 verificationLinkManager.remove(secret);
-                throw new IllegalArgumentException("Email verification link is expired.");
+                throw new ValidationException("Email verification link is expired.");
             }
             String state = verificationLinkDetails.getState();
             if (!state.equals(VerificationLinkDetails.State.GENERATED.name())) {
@@ -198,7 +331,7 @@ public class EmailService {
 
     private void validate(boolean isError, String message) {
         if (isError) {
-            throw new IllegalArgumentException(message);
+            throw new ValidationException(message);
         }
     }
 
@@ -0,0 +1,55 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+/**
+ * Result of a login link request, shared by concurrent duplicate requests for the same email address.
+ * Holds either the session the login link was sent for or the error shown on the login page.
+ */
+final class LoginOutcome {
+
+    private final String sessionId;
+    private final String error;
+
+    private LoginOutcome(String sessionId, String error) {
+        this.sessionId = sessionId;
+        this.error = error;
+    }
+
+    static LoginOutcome sent(String sessionId) {
+        return new LoginOutcome(sessionId, null);
+    }
+
+    static LoginOutcome rejected(String error) {
+        return new LoginOutcome(null, error);
+    }
+
+    boolean isRejected() {
+        return error != null;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    String getError() {
+        return error;
+    }
+
+}
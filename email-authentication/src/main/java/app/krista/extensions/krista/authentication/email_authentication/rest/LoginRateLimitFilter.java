@@ -0,0 +1,194 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+import app.krista.extension.common.KristaError;
+import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
+import app.krista.extensions.krista.authentication.email_authentication.utils.TokenBuckets;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Rate limits login link requests per client IP address and per email address before they reach the account
+ * manager, the key value store or the SMTP relay. Requests over either limit are answered with 429 and
+ * Retry-After.
+ * The client IP address is the address of the connection. X-Forwarded-For is only used when the connection comes
+ * from one of the configured trusted proxies, since any client can send the header.
+ */
+@Service
+@Provider
+public final class LoginRateLimitFilter implements ContainerRequestFilter {
+
+    static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final int MAX_FORM_BYTES = 8192;
+    private static final int MAX_KEYS = 65536;
+    private static final KristaError TOO_MANY_REQUESTS = new KristaError("Too many login requests.",
+            EmailAuthenticationConstants.AUTHENTICATION_TYPE + "- 429");
+
+    private final TokenBuckets clientBuckets;
+    private final TokenBuckets emailBuckets;
+    private final Supplier<Set<String>> trustedProxies;
+
+    @Context
+    private HttpServletRequest httpServletRequest;
+
+    @Inject
+    public LoginRateLimitFilter(EmailInvokerAttributesProvider invokerAttributesProvider) {
+        this(new TokenBuckets(30, Duration.ofSeconds(2), MAX_KEYS, System::nanoTime),
+                new TokenBuckets(5, Duration.ofSeconds(30), MAX_KEYS, System::nanoTime),
+                () -> invokerAttributesProvider.getAttributes().getTrustedProxies());
+    }
+
+    public LoginRateLimitFilter(TokenBuckets clientBuckets, TokenBuckets emailBuckets,
+            Supplier<Set<String>> trustedProxies) {
+        this.clientBuckets = clientBuckets;
+        this.emailBuckets = emailBuckets;
+        this.trustedProxies = trustedProxies;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) throws IOException {
+        if (!"POST".equals(requestContext.getMethod()) || !isLoginPath(requestContext.getUriInfo().getPath())) {
+            return;
+        }
+        String clientAddress = getClientAddress(getRemoteAddress(), requestContext.getHeaderString(FORWARDED_FOR),
+                trustedProxies.get());
+        long waitNanos = clientAddress == null ? 0 : clientBuckets.tryAcquire(clientAddress);
+        if (waitNanos == 0) {
+            String email = readEmail(requestContext);
+            waitNanos = email == null ? 0 : emailBuckets.tryAcquire(email);
+        }
+        if (waitNanos > 0) {
+            requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1)
+                    .type(MediaType.APPLICATION_JSON)
+                    .entity(TOO_MANY_REQUESTS)
+                    .build());
+        }
+    }
+
+    public long getRejectedByClient() {
+        return clientBuckets.getRejected();
+    }
+
+    public long getRejectedByEmail() {
+        return emailBuckets.getRejected();
+    }
+
+    static boolean isLoginPath(String path) {
+        return path != null && (path.equals("login") || path.equals("/login"));
+    }
+
+    /**
+     * Returns the client address: the remote address of the connection, or, if that is a trusted proxy, the
+     * right-most X-Forwarded-For entry that is not a trusted proxy. Entries left of it were written by the client
+     * or by proxies we do not know, so they are ignored.
+     *
+     * @param remoteAddress
+     * @param forwardedFor
+     * @param trustedProxies
+     * @return String, null if the remote address is unknown
+     */
+    public static String getClientAddress(String remoteAddress, String forwardedFor, Set<String> trustedProxies) {
+        if (remoteAddress == null || remoteAddress.isBlank()) {
+            return null;
+        }
+        if (forwardedFor == null || !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String clientAddress = remoteAddress;
+        int end = forwardedFor.length();
+        while (end > 0) {
+            int comma = forwardedFor.lastIndexOf(',', end - 1);
+            String hop = forwardedFor.substring(comma + 1, end).strip();
+            end = comma < 0 ? 0 : comma;
+            if (hop.isEmpty()) {
+                continue;
+            }
+            clientAddress = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return clientAddress;
+    }
+
+    private String getRemoteAddress() {
+        return httpServletRequest == null ? null : httpServletRequest.getRemoteAddr();
+    }
+
+    /**
+     * Reads the email field of a small url encoded form and puts the body back for the resource method.
+     *
+     * @param requestContext
+     * @return String normalized email, null if the body is not such a form
+     * @throws IOException
+     */
+    private static String readEmail(ContainerRequestContext requestContext) throws IOException {
+        MediaType mediaType = requestContext.getMediaType();
+        if (!requestContext.hasEntity() || mediaType == null
+                || !mediaType.isCompatible(MediaType.APPLICATION_FORM_URLENCODED_TYPE)) {
+            return null;
+        }
+        InputStream entityStream = requestContext.getEntityStream();
+        byte[] form = entityStream.readNBytes(MAX_FORM_BYTES + 1);
+        if (form.length > MAX_FORM_BYTES) {
+            requestContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(form),
+                    entityStream));
+            return null;
+        }
+        requestContext.setEntityStream(new ByteArrayInputStream(form));
+        return getFormField(new String(form, StandardCharsets.US_ASCII), "email");
+    }
+
+    static String getFormField(String form, String name) {
+        for (String field : form.split("&")) {
+            int equals = field.indexOf('=');
+            if (equals > 0 && field.substring(0, equals).equals(name)) {
+                try {
+                    String value = URLDecoder.decode(field.substring(equals + 1), StandardCharsets.UTF_8).strip();
+                    return value.isEmpty() ? null : value.toLowerCase();
+                } catch (IllegalArgumentException cause) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,258 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Timing of the ordered stages of a login link request.
+ * Stages run cheapest first and each one may end the request; the stage that ended it is counted as a rejection.
+ */
+@Service
+public final class LoginStages {
+
+    public enum Stage {
+        SYNTAX,
+        DOMAIN_POLICY,
+        DELIVERY_HEALTH,
+        ACCOUNT_LOOKUP,
+        PROVISIONING,
+        DISPATCH
+    }
+
+    private static final long SLOW_LOGIN_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Map<Stage, StageCounters> counters = new EnumMap<>(Stage.class);
+    private final LongAdder shared = new LongAdder();
+
+    public LoginStages() {
+        for (Stage stage : Stage.values()) {
+            counters.put(stage, new StageCounters());
+        }
+    }
+
+    public Trace start() {
+        return new Trace(System.nanoTime());
+    }
+
+    /**
+     * Returns passed and rejected counts and mean and max duration of every stage.
+     *
+     * @return List of stage statistics
+     */
+    public List<Statistics> getStatistics() {
+        List<Statistics> statistics = new ArrayList<>();
+        counters.forEach((stage, stageCounters) -> statistics.add(stageCounters.toStatistics(stage)));
+        return statistics;
+    }
+
+    /**
+     * Returns the number of requests that joined an in flight request for the same email address.
+     *
+     * @return long
+     */
+    public long getShared() {
+        return shared.sum();
+    }
+
+    /**
+     * Stage timing of a single login request.
+     */
+    public final class Trace {
+
+        private final long start;
+        private final long[] durations = new long[Stage.values().length];
+        private long stageStart;
+        private int nextStage;
+        private boolean leading;
+        private boolean finished;
+
+        private Trace(long start) {
+            this.start = start;
+            this.stageStart = start;
+        }
+
+        /**
+         * Ends this trace on the request thread and returns a trace that continues with the next stage on the
+         * thread the remaining stages are handed to. Call resume() on it when that thread picks the work up.
+         *
+         * @return Trace
+         */
+        public Trace handOff() {
+            finished = true;
+            Trace next = new Trace(start);
+            System.arraycopy(durations, 0, next.durations, 0, nextStage);
+            next.nextStage = nextStage;
+            next.leading = true;
+            return next;
+        }
+
+        /**
+         * Starts timing the next stage now, so time spent waiting for a thread is not counted to it.
+         */
+        public void resume() {
+            stageStart = System.nanoTime();
+        }
+
+        /**
+         * Records the duration of the given stage, which must be the next stage of the pipeline.
+         *
+         * @param stage
+         */
+        public void passed(Stage stage) {
+            if (stage.ordinal() != nextStage) {
+                throw new IllegalStateException("Login stage " + stage + " passed out of order.");
+            }
+            long now = System.nanoTime();
+            durations[nextStage++] = now - stageStart;
+            counters.get(stage).passed(now - stageStart);
+            stageStart = now;
+        }
+
+        /**
+         * Marks this request as the one running the stages after syntax. Requests that pass syntax without
+         * leading joined another request and are counted as shared instead of rejected.
+         *
+         * @return Trace
+         */
+        public Trace lead() {
+            leading = true;
+            return this;
+        }
+
+        /**
+         * Counts the current stage as the one that ended the request, unless every stage passed,
+         * and logs the stage breakdown of slow requests.
+         */
+        public void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long now = System.nanoTime();
+            if (nextStage > 0 && !leading) {
+                shared.increment();
+            } else if (nextStage < durations.length) {
+                durations[nextStage] = now - stageStart;
+                counters.get(Stage.values()[nextStage]).rejected(now - stageStart);
+            }
+            if (now - start >= SLOW_LOGIN_NANOS) {
+                System.out.println("Slow login link request took " + TimeUnit.NANOSECONDS.toMillis(now - start)
+                        + "ms: " + toString());
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("{");
+            for (int i = 0; i <= Math.min(nextStage, durations.length - 1); i++) {
+                builder.append(i == 0 ? "" : ", ").append(Stage.values()[i]).append('=')
+                        .append(TimeUnit.NANOSECONDS.toMillis(durations[i])).append("ms");
+            }
+            return builder.append('}').toString();
+        }
+
+    }
+
+    public static final class Statistics {
+
+        private final Stage stage;
+        private final long passed;
+        private final long rejected;
+        private final double meanMillis;
+        private final double maxMillis;
+
+        public Statistics(Stage stage, long passed, long rejected, double meanMillis, double maxMillis) {
+            this.stage = stage;
+            this.passed = passed;
+            this.rejected = rejected;
+            this.meanMillis = meanMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public long getPassed() {
+            return passed;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "{stage=" + stage +
+                    ", passed=" + passed +
+                    ", rejected=" + rejected +
+                    ", meanMillis=" + meanMillis +
+                    ", maxMillis=" + maxMillis +
+                    '}';
+        }
+
+    }
+
+    private static final class StageCounters {
+
+        private final LongAdder passed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private void passed(long durationNanos) {
+            passed.increment();
+            record(durationNanos);
+        }
+
+        private void rejected(long durationNanos) {
+            rejected.increment();
+            record(durationNanos);
+        }
+
+        private void record(long durationNanos) {
+            totalNanos.add(durationNanos);
+            maxNanos.accumulate(durationNanos);
+        }
+
+        private Statistics toStatistics(Stage stage) {
+            long calls = passed.sum() + rejected.sum();
+            return new Statistics(stage, passed.sum(), rejected.sum(),
+                    calls == 0 ? 0 : totalNanos.sum() / (double) calls / 1_000_000.0, maxNanos.get() / 1_000_000.0);
+        }
+
+    }
+
+}
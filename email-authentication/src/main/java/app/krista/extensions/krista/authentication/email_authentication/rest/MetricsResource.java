@@ -0,0 +1,161 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
+import app.krista.extensions.krista.authentication.email_authentication.mail.CircuitBreaker;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatcher;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpRelay;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpTlsContext;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import app.krista.extensions.krista.authentication.email_authentication.utils.PrometheusText;
+
+/**
+ * Exports request and section latencies, login stage counters and SMTP delivery statistics in the Prometheus
+ * text format. The endpoint is only served to callers presenting the configured metrics token as a bearer token;
+ * without a configured token it answers 404.
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final EmailInvokerAttributesProvider invokerAttributesProvider;
+    private final LatencyMetrics latencyMetrics;
+    private final LoginStages loginStages;
+    private final EmailDispatcher emailDispatcher;
+    private final LoginRateLimitFilter loginRateLimitFilter;
+
+    @Inject
+    public MetricsResource(EmailInvokerAttributesProvider invokerAttributesProvider, LatencyMetrics latencyMetrics,
+            LoginStages loginStages, EmailDispatcher emailDispatcher, LoginRateLimitFilter loginRateLimitFilter) {
+        this.invokerAttributesProvider = invokerAttributesProvider;
+        this.latencyMetrics = latencyMetrics;
+        this.loginStages = loginStages;
+        this.emailDispatcher = emailDispatcher;
+        this.loginRateLimitFilter = loginRateLimitFilter;
+    }
+
+    @GET
+    public Response getMetrics(@HeaderParam(HttpHeaders.AUTHORIZATION) String authorization) {
+        String metricsToken = invokerAttributesProvider.getAttributes().getMetricsToken();
+        if (metricsToken == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        if (!isAuthorized(authorization, metricsToken)) {
+            return Response.status(Response.Status.UNAUTHORIZED).header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+                    .build();
+        }
+        PrometheusText text = new PrometheusText()
+                .summary("authn_request_duration_seconds", "Latency of the REST endpoints.", "endpoint",
+                        latencyMetrics.getEndpoints())
+                .summary("authn_section_duration_seconds",
+                        "Latency of key value store, account manager, SMTP and authenticator calls.", "section",
+                        latencyMetrics.getSections());
+        addLoginStages(text);
+        addRateLimits(text);
+        addSmtp(text);
+        return Response.ok(text.toString(), PrometheusText.CONTENT_TYPE).build();
+    }
+
+    /**
+     * Returns true if the Authorization header carries the metrics token as a bearer token.
+     * The token is compared in constant time.
+     *
+     * @param authorization
+     * @param metricsToken
+     * @return boolean
+     */
+    public static boolean isAuthorized(String authorization, String metricsToken) {
+        if (authorization == null || metricsToken == null
+                || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return false;
+        }
+        return MessageDigest.isEqual(authorization.substring(BEARER_PREFIX.length()).strip()
+                .getBytes(StandardCharsets.UTF_8), metricsToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void addLoginStages(PrometheusText text) {
+        text.family("authn_login_stage_passed_total", "counter", "Login link requests that passed the stage.");
+        for (LoginStages.Statistics statistics : loginStages.getStatistics()) {
+            text.sample("authn_login_stage_passed_total", statistics.getPassed(), "stage",
+                    statistics.getStage().name());
+        }
+        text.family("authn_login_stage_rejected_total", "counter", "Login link requests ended by the stage.");
+        for (LoginStages.Statistics statistics : loginStages.getStatistics()) {
+            text.sample("authn_login_stage_rejected_total", statistics.getRejected(), "stage",
+                    statistics.getStage().name());
+        }
+        text.family("authn_login_shared_total", "counter",
+                "Login link requests that joined an in flight request for the same email address.")
+                .sample("authn_login_shared_total", loginStages.getShared());
+    }
+
+    private void addRateLimits(PrometheusText text) {
+        text.family("authn_login_rate_limited_total", "counter", "Login link requests answered with 429.")
+                .sample("authn_login_rate_limited_total", loginRateLimitFilter.getRejectedByClient(), "key",
+                        "client")
+                .sample("authn_login_rate_limited_total", loginRateLimitFilter.getRejectedByEmail(), "key",
+                        "email");
+    }
+
+    private void addSmtp(PrometheusText text) {
+        text.family("authn_smtp_circuit_breaker_state", "gauge", "1 for the current SMTP circuit breaker state.");
+        CircuitBreaker.State currentState = emailDispatcher.getState();
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            text.sample("authn_smtp_circuit_breaker_state", state == currentState ? 1 : 0, "state", state.name());
+        }
+        text.family("authn_smtp_queue_depth", "gauge", "Messages waiting in the dispatch lane.");
+        for (EmailDispatchQueue.Statistics statistics : emailDispatcher.getQueueStatistics()) {
+            text.sample("authn_smtp_queue_depth", statistics.getQueued(), "lane", statistics.getLane().name());
+        }
+        text.family("authn_smtp_queue_overdue_total", "counter", "Messages that waited past the lane objective.");
+        for (EmailDispatchQueue.Statistics statistics : emailDispatcher.getQueueStatistics()) {
+            text.sample("authn_smtp_queue_overdue_total", statistics.getOverdue(), "lane",
+                    statistics.getLane().name());
+        }
+        text.family("authn_smtp_relay_messages_total", "counter", "Messages per relay and outcome.");
+        for (SmtpRelay.Metrics metrics : emailDispatcher.getRelayMetrics()) {
+            text.sample("authn_smtp_relay_messages_total", metrics.getSentMessages(), "relay", metrics.getRelay(),
+                            "outcome", "sent")
+                    .sample("authn_smtp_relay_messages_total", metrics.getFailedMessages(), "relay",
+                            metrics.getRelay(), "outcome", "failed")
+                    .sample("authn_smtp_relay_messages_total", metrics.getThrottledMessages(), "relay",
+                            metrics.getRelay(), "outcome", "throttled");
+        }
+        text.family("authn_smtp_relay_healthy", "gauge", "1 while the relay is healthy.");
+        for (SmtpRelay.Metrics metrics : emailDispatcher.getRelayMetrics()) {
+            text.sample("authn_smtp_relay_healthy", metrics.isHealthy() ? 1 : 0, "relay", metrics.getRelay());
+        }
+        SmtpTlsContext.Statistics tlsStatistics = emailDispatcher.getTlsStatistics();
+        text.family("authn_smtp_tls_handshakes_total", "counter", "TLS handshakes with the SMTP relays.")
+                .sample("authn_smtp_tls_handshakes_total", tlsStatistics.getFullHandshakes(), "type", "full")
+                .sample("authn_smtp_tls_handshakes_total", tlsStatistics.getResumedHandshakes(), "type", "resumed");
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Runs suspended requests on virtual threads, so a stalled key value store or platform call parks a cheap
+ * virtual thread instead of holding a container thread.
+ * A request that is not done within the timeout is interrupted and answered with 503.
+ */
+@Service
+public final class RequestExecutor {
+
+    static final long TIMEOUT_SECONDS = 30;
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final ExecutorService executor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("authn-request-", 0).factory());
+
+    @FunctionalInterface
+    public interface Call {
+
+        Object call() throws Exception;
+
+    }
+
+    /**
+     * Resumes the response with the result of the call, or with its exception so the exception mapper
+     * answers it as before.
+     *
+     * @param asyncResponse
+     * @param call
+     */
+    public void execute(AsyncResponse asyncResponse, Call call) {
+        // The timeout must be set while the response is still suspended, i.e. before a fast call can resume it.
+        AtomicReference<Future<?>> future = new AtomicReference<>();
+        asyncResponse.setTimeoutHandler(response -> {
+            Future<?> running = future.get();
+            if (running != null) {
+                running.cancel(true);
+            }
+            response.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build());
+        });
+        asyncResponse.setTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try {
+            future.set(executor.submit(() -> {
+                try {
+                    asyncResponse.resume(call.call());
+                } catch (Exception cause) {
+                    asyncResponse.resume(cause);
+                }
+            }));
+        } catch (RejectedExecutionException cause) {
+            asyncResponse.resume(cause);
+        }
+    }
+
+}
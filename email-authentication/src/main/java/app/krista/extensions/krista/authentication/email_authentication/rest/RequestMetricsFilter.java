@@ -0,0 +1,81 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.rest;
+
+import java.util.Set;
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Records the latency of every request under its endpoint, from the request filter until the response is
+ * ready, which for suspended requests includes the time spent on the request executor.
+ */
+@Service
+@Provider
+public final class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final String START_PROPERTY = RequestMetricsFilter.class.getName() + ".start";
+    private static final Set<String> ENDPOINTS = Set.of("", "login", "waiting", "status", "logout", "type",
+            "docs", "metrics");
+
+    private final LatencyMetrics latencyMetrics;
+
+    @Inject
+    public RequestMetricsFilter(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (start instanceof Long) {
+            latencyMetrics.recordEndpoint(getEndpoint(requestContext.getMethod(),
+                    requestContext.getUriInfo().getPath()), System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * Returns "METHOD /path" of the endpoint, with every documentation file counted as /docs and unknown paths
+     * as /other, so the number of histograms stays fixed.
+     *
+     * @param method
+     * @param path
+     * @return String
+     */
+    static String getEndpoint(String method, String path) {
+        String endpoint = path == null ? "" : path.startsWith("/") ? path.substring(1) : path;
+        int slash = endpoint.indexOf('/');
+        if (slash >= 0) {
+            endpoint = endpoint.substring(0, slash);
+        }
+        return method + " /" + (ENDPOINTS.contains(endpoint) ? endpoint : "other");
+    }
+
+}
@@ -18,39 +18,38 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.utils;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Pattern;
+import app.krista.extension.common.DomainPolicy;
+import app.krista.extension.common.SupportedDomains;
 
 public final class DomainNames {
 
-    private static final Pattern DOMAIN_NAME_PATTERN = Pattern.compile(
-            "^((?!-)[A-Za-z0-9-]"
-                    + "{1,63}(?<!-)\\.)"
-                    + "+[A-Za-z]{2,6}");
-
     private DomainNames() {
     }
 
+    /**
+     * Normalizes and deduplicates the domain names, throwing ValidationException that lists every invalid one.
+     *
+     * @param domainNames
+     * @return List of domain names
+     */
     public static List<String> normalizeDomainNames(List<String> domainNames) {
         if (domainNames == null || domainNames.isEmpty()) {
             return List.of();
         }
-        Set<String> seen = new HashSet<>();
-        List<String> normalized = new ArrayList<>();
-        for (String item : domainNames) {
-            String normalizedDomainName = normalizeDomainName(item);
-            if (seen.add(normalizedDomainName)) {
-                normalized.add(normalizedDomainName);
-            }
-        }
-        return normalized;
+        return SupportedDomains.validate(domainNames).requireValid().getDomainNames();
     }
 
+    /**
+     * Normalizes a domain name, or a "*.domain" rule matching all subdomains of a domain.
+     *
+     * @param domain
+     * @return String
+     */
     public static String normalizeDomainName(String domain) {
-        if (!isValidDomain(domain)) {
+        String domainName = domain != null && domain.strip().startsWith(DomainPolicy.WILDCARD_PREFIX)
+                ? domain.strip().substring(DomainPolicy.WILDCARD_PREFIX.length()) : domain;
+        if (!isValidDomain(domainName)) {
             throw new IllegalArgumentException("Invalid domain name!");
         }
         return normalize(domain);
@@ -64,7 +63,7 @@ public final class DomainNames {
         if (domainName == null || domainName.isBlank()) {
             return false;
         }
-        return DOMAIN_NAME_PATTERN.matcher(normalize(domainName)).matches();
+        return SupportedDomains.isValidDomainName(normalize(domainName));
     }
 
 }
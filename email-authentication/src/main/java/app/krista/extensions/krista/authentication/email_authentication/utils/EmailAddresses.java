@@ -18,40 +18,36 @@
 
 package app.krista.extensions.krista.authentication.email_authentication.utils;
 
-import java.util.regex.Pattern;
+import app.krista.extension.common.EmailAddress;
 
 public final class EmailAddresses {
 
-    private static final Pattern EMAIL_ADDRESS_PATTERN =
-            Pattern.compile("^[a-z0-9_+&*-]+(?:\\.[a-z0-9_+&*-]+)*@(?:[a-z0-9-]+\\.)+[a-z]{2,7}$");
 
     private EmailAddresses() {
     }
 
     public static boolean isValidEmailAddress(String emailAddress) {
-        if (emailAddress == null || emailAddress.isBlank()) {
-            return false;
-        }
-        return EMAIL_ADDRESS_PATTERN.matcher(normalize(emailAddress)).matches();
-    }
-
-    private static String normalize(String emailAddress) {
-        return emailAddress.strip().toLowerCase();
+        return EmailAddress.tryParse(emailAddress) != null;
     }
 
     public static String normalizeEmailAddress(String emailAddress) {
-        if (!isValidEmailAddress(emailAddress)) {
-            throw new IllegalArgumentException();
-        }
-        return normalize(emailAddress);
+        return parse(emailAddress).getNormalized();
     }
 
     public static String getDomainName(String emailAddress) {
-        return normalizeEmailAddress(emailAddress).split("@")[1];
+        return parse(emailAddress).getDomainName();
     }
 
     public static String getLocalPart(String emailAddress) {
-        return normalizeEmailAddress(emailAddress).split("@")[0];
+        return parse(emailAddress).getLocalPart();
+    }
+
+    private static EmailAddress parse(String emailAddress) {
+        EmailAddress parsed = EmailAddress.tryParse(emailAddress);
+        if (parsed == null) {
+            throw new IllegalArgumentException();
+        }
+        return parsed;
     }
 
 }
@@ -0,0 +1,162 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * HTML page parsed once into literal and slot segments.
+ * A slot is a "__name" placeholder. Literals are kept UTF-8 encoded, so rendering writes them straight to the
+ * output and only encodes the HTML escaped slot values. Slots without a value are written back unchanged.
+ */
+public final class HtmlTemplate {
+
+    private static final ConcurrentMap<String, HtmlTemplate> TEMPLATES = new ConcurrentHashMap<>();
+
+    private final byte[][] literals;
+    private final String[] slots;
+    private final byte[][] placeholders;
+
+    private HtmlTemplate(List<byte[]> literals, List<String> slots) {
+        this.literals = literals.toArray(new byte[0][]);
+        this.slots = slots.toArray(new String[0]);
+        this.placeholders = new byte[this.slots.length][];
+        for (int i = 0; i < this.slots.length; i++) {
+            placeholders[i] = this.slots[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Returns the template of the class path resource, reading and parsing it only on first use.
+     *
+     * @param classLoader
+     * @param path
+     * @return HtmlTemplate
+     */
+    public static HtmlTemplate get(ClassLoader classLoader, String path) {
+        HtmlTemplate template = TEMPLATES.get(path);
+        if (template == null) {
+            template = TEMPLATES.computeIfAbsent(path, key -> load(classLoader, key));
+        }
+        return template;
+    }
+
+    static HtmlTemplate load(ClassLoader classLoader, String path) {
+        try (InputStream resourceAsStream = classLoader.getResourceAsStream(path)) {
+            if (resourceAsStream == null) {
+                throw new IllegalStateException("Template " + path + " is not found.");
+            }
+            return compile(new String(resourceAsStream.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException cause) {
+            throw new UncheckedIOException("Failed to read template " + path, cause);
+        }
+    }
+
+    public static HtmlTemplate compile(String page) {
+        List<byte[]> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int literalStart = 0;
+        int index = page.indexOf("__");
+        while (index >= 0) {
+            int end = index + 2;
+            if (end < page.length() && Character.isLetter(page.charAt(end))) {
+                while (end < page.length() && Character.isLetterOrDigit(page.charAt(end))) {
+                    end++;
+                }
+                literals.add(page.substring(literalStart, index).getBytes(StandardCharsets.UTF_8));
+                slots.add(page.substring(index, end));
+                literalStart = end;
+            }
+            index = page.indexOf("__", end);
+        }
+        literals.add(page.substring(literalStart).getBytes(StandardCharsets.UTF_8));
+        return new HtmlTemplate(literals, slots);
+    }
+
+    /**
+     * Writes the page with the given slot values, keyed by placeholder including the leading "__".
+     *
+     * @param values
+     * @param output
+     * @throws IOException
+     */
+    public void render(Map<String, String> values, OutputStream output) throws IOException {
+        for (int i = 0; i < slots.length; i++) {
+            output.write(literals[i]);
+            String value = values.get(slots[i]);
+            output.write(value == null ? placeholders[i] : escape(value).getBytes(StandardCharsets.UTF_8));
+        }
+        output.write(literals[slots.length]);
+    }
+
+    public String render(Map<String, String> values) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            render(values, output);
+        } catch (IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    static String escape(String value) {
+        StringBuilder builder = null;
+        for (int i = 0; i < value.length(); i++) {
+            String entity;
+            switch (value.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                case '\'':
+                    entity = "&#39;";
+                    break;
+                default:
+                    if (builder != null) {
+                        builder.append(value.charAt(i));
+                    }
+                    continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            builder.append(entity);
+        }
+        return builder == null ? value : builder.toString();
+    }
+
+}
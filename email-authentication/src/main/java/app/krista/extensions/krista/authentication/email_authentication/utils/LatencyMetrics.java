@@ -0,0 +1,97 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.jvnet.hk2.annotations.Service;
+
+/**
+ * Latency histograms of the REST endpoints and of the timed sections the requests spend their time in.
+ */
+@Service
+public final class LatencyMetrics {
+
+    public static final String KEY_VALUE_STORE = "key_value_store";
+    public static final String ACCOUNT_MANAGER = "account_manager";
+    public static final String SMTP = "smtp";
+    public static final String AUTHENTICATOR = "authenticator";
+
+    private final ConcurrentMap<String, LatencyHistogram> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> sections = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Section<V, E extends Exception> {
+
+        V call() throws E;
+
+    }
+
+    @FunctionalInterface
+    public interface Task<E extends Exception> {
+
+        void run() throws E;
+
+    }
+
+    public void recordEndpoint(String endpoint, long durationNanos) {
+        endpoints.computeIfAbsent(endpoint, key -> new LatencyHistogram()).record(durationNanos);
+    }
+
+    public void recordSection(String section, long durationNanos) {
+        sections.computeIfAbsent(section, key -> new LatencyHistogram()).record(durationNanos);
+    }
+
+    /**
+     * Runs the call and records its duration under the section, also when it fails.
+     *
+     * @param section
+     * @param call
+     * @return V
+     * @throws E
+     */
+    public <V, E extends Exception> V time(String section, Section<V, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } finally {
+            recordSection(section, System.nanoTime() - start);
+        }
+    }
+
+    public <E extends Exception> void run(String section, Task<E> task) throws E {
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            recordSection(section, System.nanoTime() - start);
+        }
+    }
+
+    public Map<String, LatencyHistogram> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    public Map<String, LatencyHistogram> getSections() {
+        return new TreeMap<>(sections);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.util.Map;
+
+/**
+ * Builder of the Prometheus text exposition format (version 0.0.4).
+ */
+public final class PrometheusText {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final StringBuilder text = new StringBuilder(4096);
+
+    /**
+     * Starts a metric family with its HELP and TYPE lines.
+     *
+     * @param name
+     * @param type counter, gauge or summary
+     * @param help
+     * @return PrometheusText
+     */
+    public PrometheusText family(String name, String type, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Adds a sample; labels are given as alternating names and values.
+     *
+     * @param name
+     * @param value
+     * @param labels
+     * @return PrometheusText
+     */
+    public PrometheusText sample(String name, double value, String... labels) {
+        text.append(name);
+        if (labels.length > 0) {
+            text.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+        return this;
+    }
+
+    /**
+     * Adds a summary family in seconds with p50, p99 and p999 quantiles, sum and count per histogram.
+     *
+     * @param name
+     * @param help
+     * @param label name of the label that carries the histogram key
+     * @param histograms
+     * @return PrometheusText
+     */
+    public PrometheusText summary(String name, String help, String label, Map<String, LatencyHistogram> histograms) {
+        family(name, "summary", help);
+        histograms.forEach((key, histogram) -> {
+            for (double quantile : QUANTILES) {
+                sample(name, histogram.getQuantileNanos(quantile) / NANOS_PER_SECOND, label, key, "quantile",
+                        Double.toString(quantile));
+            }
+            sample(name + "_sum", histogram.getSumNanos() / NANOS_PER_SECOND, label, key);
+            sample(name + "_count", histogram.getCount(), label, key);
+        });
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+}
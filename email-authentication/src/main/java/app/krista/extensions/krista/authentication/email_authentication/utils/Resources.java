@@ -19,10 +19,11 @@
 package app.krista.extensions.krista.authentication.email_authentication.utils;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.util.Map;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import com.kristasoft.common.PotentialCommonCode;
 
 @PotentialCommonCode
@@ -36,15 +37,26 @@ public final class Resources {
         return getTranslatedResource(clazz.getClassLoader(), path, translations);
     }
 
+    /**
+     * Renders the compiled template of the page; the page is read and parsed only on first use and the values
+     * are HTML escaped while the response is streamed.
+     *
+     * @param classLoader
+     * @param path
+     * @param translations
+     * @return Response
+     * @throws IOException
+     */
     public static Response getTranslatedResource(ClassLoader classLoader, String path,
             Map<String, String> translations) throws IOException {
-        InputStream resourceAsStream = classLoader.getResourceAsStream(path);
-        assert resourceAsStream != null;
-        String page = new String(resourceAsStream.readAllBytes(), StandardCharsets.UTF_8);
-        for (Map.Entry<String, String> entry : translations.entrySet()) {
-            page = page.replace(entry.getKey(), entry.getValue());
+        HtmlTemplate template;
+        try {
+            template = HtmlTemplate.get(classLoader, path);
+        } catch (UncheckedIOException cause) {
+            throw cause.getCause();
         }
-        return Response.ok(200).entity(page).build();
+        StreamingOutput page = output -> template.render(translations, output);
+        return Response.ok(page, MediaType.TEXT_HTML + ";charset=UTF-8").build();
     }
 
 }
@@ -0,0 +1,89 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Deduplicates concurrent calls with the same key.
+ * The first caller of a key runs the call; callers arriving while it is in flight wait and share its result or
+ * its exception. Once the call completes the key is released, so later callers run the call again.
+ * A waiting caller that is interrupted, e.g. by a request timeout, stops waiting with a CancellationException
+ * and keeps its interrupt status; the call in flight is not affected.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    public <E extends Exception> V execute(K key, Call<V, E> call) throws E {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = flights.putIfAbsent(key, flight);
+        if (inFlight != null) {
+            return join(inFlight);
+        }
+        try {
+            V value = call.call();
+            flight.complete(value);
+            return value;
+        } catch (Throwable cause) {
+            flight.completeExceptionally(cause);
+            throw cause;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    public int size() {
+        return flights.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V join(CompletableFuture<V> flight) throws E {
+        try {
+            return flight.get();
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            CancellationException cancellation =
+                    new CancellationException("Interrupted while waiting for the call in flight.");
+            cancellation.initCause(cause);
+            throw cancellation;
+        } catch (ExecutionException execution) {
+            Throwable cause = execution.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (E) cause;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Call<V, E extends Exception> {
+
+        V call() throws E;
+
+    }
+
+}
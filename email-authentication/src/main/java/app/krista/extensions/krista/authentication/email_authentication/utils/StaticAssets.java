@@ -0,0 +1,254 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Static files prepared once: each asset keeps its bytes, a gzip variant when that is smaller and a strong ETag
+ * per variant, so requests are answered from memory with 304 when the client already has the representation.
+ * Versioned assets get long-lived immutable cache headers; the others must be revalidated on every use.
+ * Not thread safe while assets are added; share an instance only after it is fully built.
+ */
+public final class StaticAssets {
+
+    public static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    public static final String REVALIDATE = "no-cache";
+
+    private static final int MIN_COMPRESSIBLE_SIZE = 256;
+    private static final String GZIP = "gzip";
+
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    public static final class Asset {
+
+        private final String contentType;
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final String version;
+        private final String cacheControl;
+
+        private Asset(String contentType, byte[] content, byte[] gzipContent, String version, String cacheControl) {
+            this.contentType = contentType;
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.version = version;
+            this.cacheControl = cacheControl;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getContent(boolean gzip) {
+            return gzip && gzipContent != null ? gzipContent : content;
+        }
+
+        public boolean hasGzipVariant() {
+            return gzipContent != null;
+        }
+
+        /**
+         * Returns the content hash, usable as cache busting version of the asset URL.
+         *
+         * @return String
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        public String getETag(boolean gzip) {
+            return gzip && gzipContent != null ? '"' + version + "-gz\"" : '"' + version + '"';
+        }
+
+        public String getCacheControl() {
+            return cacheControl;
+        }
+
+        /**
+         * Returns true if the If-None-Match header names either variant of this asset. Uses the weak comparison
+         * the header is defined with, so W/ prefixes added by proxies still match.
+         *
+         * @param ifNoneMatch
+         * @return boolean
+         */
+        public boolean isNotModified(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmedTag = tag.trim();
+                if (trimmedTag.startsWith("W/")) {
+                    trimmedTag = trimmedTag.substring(2);
+                }
+                if (trimmedTag.equals("*") || trimmedTag.equals(getETag(false)) || trimmedTag.equals(getETag(true))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Adds the asset, compressing and hashing it now.
+     *
+     * @param path
+     * @param content
+     * @param immutable whether the asset URL changes with its content
+     * @return Asset
+     */
+    public Asset add(String path, byte[] content, boolean immutable) {
+        byte[] gzipContent = content.length >= MIN_COMPRESSIBLE_SIZE ? gzip(content) : null;
+        if (gzipContent != null && gzipContent.length >= content.length) {
+            gzipContent = null;
+        }
+        Asset asset = new Asset(getContentType(path), content, gzipContent, hash(content),
+                immutable ? IMMUTABLE : REVALIDATE);
+        assets.put(path, asset);
+        return asset;
+    }
+
+    public Asset get(String path) {
+        return assets.get(path);
+    }
+
+    /**
+     * Returns the asset for the request headers: 304 when If-None-Match names it, otherwise the gzip variant
+     * when the client accepts it and the plain bytes when not. Unknown paths get 404.
+     *
+     * @param path
+     * @param headers
+     * @return Response
+     */
+    public Response respond(String path, HttpHeaders headers) {
+        Asset asset = assets.get(path);
+        if (asset == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        boolean gzip = asset.hasGzipVariant() && acceptsGzip(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        Response.ResponseBuilder builder;
+        if (asset.isNotModified(headers.getHeaderString(HttpHeaders.IF_NONE_MATCH))) {
+            builder = Response.notModified();
+        } else {
+            builder = Response.ok(asset.getContent(gzip), asset.getContentType());
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            }
+        }
+        if (asset.hasGzipVariant()) {
+            builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder.header(HttpHeaders.ETAG, asset.getETag(gzip))
+                .header(HttpHeaders.CACHE_CONTROL, asset.getCacheControl())
+                .build();
+    }
+
+    /**
+     * Returns true if the Accept-Encoding header allows gzip, either by name or through "*", with a non zero
+     * quality.
+     *
+     * @param acceptEncoding
+     * @return boolean
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if (name.equalsIgnoreCase(GZIP) || name.equals("*")) {
+                return Arrays.stream(parameters).skip(1).map(String::trim)
+                        .noneMatch(parameter -> parameter.matches("q=0(\\.0{0,3})?"));
+            }
+        }
+        return false;
+    }
+
+    public static byte[] read(ClassLoader classLoader, String path) {
+        try (InputStream resourceAsStream = classLoader.getResourceAsStream(path)) {
+            if (resourceAsStream == null) {
+                throw new IllegalStateException("Static asset " + path + " is not found.");
+            }
+            return resourceAsStream.readAllBytes();
+        } catch (IOException cause) {
+            throw new UncheckedIOException("Failed to read static asset " + path, cause);
+        }
+    }
+
+    private static String getContentType(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        switch (extension) {
+            case "html":
+                return "text/html;charset=UTF-8";
+            case "js":
+                return "application/javascript;charset=UTF-8";
+            case "css":
+                return "text/css;charset=UTF-8";
+            case "md":
+                return "text/markdown;charset=UTF-8";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzipOutput = new GZIPOutputStream(output) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzipOutput.write(content);
+        } catch (IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Returns a URL safe, truncated SHA-256 hash of the content.
+     *
+     * @param content
+     * @return String
+     */
+    public static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+        } catch (NoSuchAlgorithmException cause) {
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
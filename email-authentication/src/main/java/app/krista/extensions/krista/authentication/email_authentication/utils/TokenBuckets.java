@@ -0,0 +1,127 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package app.krista.extensions.krista.authentication.email_authentication.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, kept in striped maps with bounded size.
+ * A bucket is a single atomic "theoretical arrival time" (the generic cell rate form of a token bucket): taking
+ * a token is one compare-and-set, and a bucket whose time lies in the past is full and therefore idle. Idle
+ * buckets are evicted when a stripe reaches its capacity; keys that find their stripe full of busy buckets are
+ * let through untracked rather than evicting a throttled bucket.
+ */
+public final class TokenBuckets {
+
+    private static final int STRIPES = 16;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int stripeCapacity;
+    private final LongSupplier nanoClock;
+    private final List<ConcurrentHashMap<String, AtomicLong>> stripes;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    /**
+     * @param capacity tokens a full bucket holds
+     * @param refillInterval time to refill one token
+     * @param maxKeys upper bound of tracked keys
+     * @param nanoClock
+     */
+    public TokenBuckets(int capacity, Duration refillInterval, int maxKeys, LongSupplier nanoClock) {
+        if (capacity < 1 || refillInterval.isNegative() || refillInterval.isZero() || maxKeys < STRIPES) {
+            throw new IllegalArgumentException("Invalid token bucket configuration.");
+        }
+        this.intervalNanos = refillInterval.toNanos();
+        this.burstNanos = intervalNanos * (capacity - 1);
+        this.stripeCapacity = maxKeys / STRIPES;
+        this.nanoClock = nanoClock;
+        List<ConcurrentHashMap<String, AtomicLong>> stripeMaps = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripeMaps.add(new ConcurrentHashMap<>());
+        }
+        this.stripes = List.copyOf(stripeMaps);
+    }
+
+    /**
+     * Takes a token from the bucket of the key.
+     *
+     * @param key
+     * @return long 0 if a token was taken, otherwise nanoseconds until the next token is available
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = getBucket(key, now);
+        if (bucket == null) {
+            untracked.increment();
+            return 0;
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long start = Math.max(arrival, now);
+            long wait = start - now - burstNanos;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(arrival, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getUntracked() {
+        return untracked.sum();
+    }
+
+    private AtomicLong getBucket(String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes.get((key.hashCode() & 0x7fffffff) % STRIPES);
+        AtomicLong bucket = stripe.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (stripe.size() >= stripeCapacity) {
+            stripe.values().removeIf(idleBucket -> idleBucket.get() <= now);
+            if (stripe.size() >= stripeCapacity) {
+                return null;
+            }
+        }
+        return stripe.computeIfAbsent(key, ignored -> new AtomicLong(now));
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.time.Duration;
+import java.util.List;
+import app.krista.extension.common.EmailAddress;
+import app.krista.extensions.krista.authentication.email_authentication.impl.AccountCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccountCacheTest {
+
+    private long now;
+    private final AccountCache accountCache = new AccountCache(2, Duration.ofMinutes(10), () -> now);
+
+    @Test
+    public void matchesNormalizedEmail() {
+        accountCache.put(EmailAddress.parse("bob@x.com"), "account-1", List.of("User"));
+
+        Assert.assertEquals("account-1", accountCache.getAccountId(EmailAddress.parse(" Bob@X.com"), List.of("User")));
+    }
+
+    @Test
+    public void missesWhenRolesAreNotCovered() {
+        accountCache.put(EmailAddress.parse("bob@x.com"), "account-1", List.of("User"));
+
+        Assert.assertNull(accountCache.getAccountId(EmailAddress.parse("bob@x.com"), List.of("User", "Admin")));
+    }
+
+    @Test
+    public void expiresAfterTimeToLive() {
+        accountCache.put(EmailAddress.parse("bob@x.com"), "account-1", List.of("User"));
+
+        now += Duration.ofMinutes(11).toNanos();
+
+        Assert.assertNull(accountCache.getAccountId(EmailAddress.parse("bob@x.com"), List.of("User")));
+        Assert.assertEquals(0, accountCache.size());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        accountCache.put(EmailAddress.parse("a@x.com"), "account-a", List.of());
+        accountCache.put(EmailAddress.parse("b@x.com"), "account-b", List.of());
+        accountCache.getAccountId(EmailAddress.parse("a@x.com"), List.of());
+        accountCache.put(EmailAddress.parse("c@x.com"), "account-c", List.of());
+
+        Assert.assertEquals("account-a", accountCache.getAccountId(EmailAddress.parse("a@x.com"), List.of()));
+        Assert.assertNull(accountCache.getAccountId(EmailAddress.parse("b@x.com"), List.of()));
+    }
+
+    @Test
+    public void invalidatesEntry() {
+        accountCache.put(EmailAddress.parse("bob@x.com"), "account-1", List.of("User"));
+
+        accountCache.invalidate(EmailAddress.parse("BOB@x.com"));
+
+        Assert.assertNull(accountCache.getAccountId(EmailAddress.parse("bob@x.com"), List.of("User")));
+    }
+
+}
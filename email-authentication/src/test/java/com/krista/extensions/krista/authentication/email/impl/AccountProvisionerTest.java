@@ -0,0 +1,79 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import app.krista.extension.common.EmailAddress;
+import app.krista.extensions.krista.authentication.email_authentication.impl.AccountCache;
+import app.krista.extensions.krista.authentication.email_authentication.impl.AccountProvisioner;
+import app.krista.extensions.krista.authentication.email_authentication.impl.RoleIndex;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import app.krista.ksdk.accounts.AccountManager;
+import app.krista.ksdk.accounts.ModifiableAccount;
+import app.krista.ksdk.authorization.ModifiableRole;
+import app.krista.ksdk.authorization.Role;
+import app.krista.ksdk.authorization.RoleManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AccountProvisionerTest {
+
+    private final List<ModifiableRole> workspaceRoles =
+            List.of(Fakes.role("role-0", "Admin"), Fakes.role("role-1", "User"));
+    private final List<Role> accountRoles = new ArrayList<>();
+    private final List<List<String>> roleWrites = new ArrayList<>();
+    private final AccountProvisioner accountProvisioner =
+            new AccountProvisioner(Fakes.proxy(AccountManager.class, "lookupAccount", args -> account()),
+                    new RoleIndex(Fakes.proxy(RoleManager.class, "getRoles", args -> workspaceRoles)),
+                    new AccountCache(), new LatencyMetrics());
+
+    @Test
+    public void assignsOnlyMissingRoles() {
+        accountRoles.add(workspaceRoles.get(0));
+
+        accountProvisioner.provisionAccount(EmailAddress.parse("bob@example.com"), List.of("Admin", "User"));
+
+        Assert.assertEquals(List.of(List.of("role-1")), roleWrites);
+    }
+
+    @Test
+    public void doesNotWriteWhenAccountHasAllRoles() {
+        accountRoles.addAll(workspaceRoles);
+
+        accountProvisioner.provisionAccount(EmailAddress.parse("bob@example.com"), List.of("Admin", "User"));
+        accountProvisioner.provisionAccount(EmailAddress.parse("bob@example.com"), List.of("User"));
+
+        Assert.assertTrue(roleWrites.isEmpty());
+    }
+
+    private ModifiableAccount account() {
+        return Fakes.proxy(ModifiableAccount.class, Map.of(
+                "getRoles", args -> new ArrayList<>(accountRoles),
+                "addRole", args -> {
+                    roleWrites.add(Arrays.asList((String[]) args[0]));
+                    return null;
+                },
+                "getAccountId", args -> "account-1",
+                "unmodifiable", args -> account()));
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.concurrent.TimeUnit;
+import app.krista.extensions.krista.authentication.email_authentication.mail.AdaptiveConcurrencyLimiter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 8);
+
+    @Test
+    public void growsWhileFastAndInUse() throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            acquireAll();
+            for (int slot = limiter.getInFlight(); slot > 0; slot--) {
+                limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+
+        Assert.assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    public void halvesOnThrottle() throws InterruptedException {
+        growTo(8);
+        Assert.assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+
+        limiter.onThrottled();
+
+        Assert.assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void backsOffOnSlowSend() throws InterruptedException {
+        growTo(8);
+        Assert.assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+
+        limiter.onSuccess(TimeUnit.SECONDS.toNanos(2));
+
+        Assert.assertEquals(7, limiter.getLimit());
+    }
+
+    @Test
+    public void blocksWhenLimitReached() throws InterruptedException {
+        Assert.assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+        Assert.assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+
+        Assert.assertFalse(limiter.acquire(10, TimeUnit.MILLISECONDS));
+
+        limiter.onIgnored();
+        Assert.assertTrue(limiter.acquire(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tryAcquireFailsWhenLimitReached() {
+        Assert.assertTrue(limiter.tryAcquire());
+        Assert.assertTrue(limiter.tryAcquire());
+
+        Assert.assertFalse(limiter.tryAcquire());
+
+        limiter.onIgnored();
+        Assert.assertTrue(limiter.tryAcquire());
+    }
+
+    private void growTo(int limit) throws InterruptedException {
+        while (limiter.getLimit() < limit) {
+            acquireAll();
+            for (int slot = limiter.getInFlight(); slot > 0; slot--) {
+                limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(100));
+            }
+        }
+    }
+
+    private void acquireAll() throws InterruptedException {
+        while (limiter.acquire(0, TimeUnit.SECONDS)) {
+            // take every free slot so the limit counts as in use
+        }
+    }
+
+}
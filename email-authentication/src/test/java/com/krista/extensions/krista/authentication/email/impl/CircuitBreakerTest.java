@@ -0,0 +1,89 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import app.krista.extensions.krista.authentication.email_authentication.mail.CircuitBreaker;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(4, 4, 0.5f, 0.5f,
+            Duration.ofSeconds(1), Duration.ofSeconds(30), 2, clock::get);
+
+    @Test
+    public void opensOnFailureRate() {
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onError(0);
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onError(0);
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void opensOnSlowCalls() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onSuccess(Duration.ofSeconds(2).toNanos());
+        }
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void halfOpenProbesCloseBreaker() {
+        tripBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        circuitBreaker.onSuccess(0);
+        circuitBreaker.onSuccess(0);
+
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void halfOpenFailureReopensBreaker() {
+        tripBreaker();
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onError(0);
+
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void tripBreaker() {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onError(0);
+        }
+    }
+
+}
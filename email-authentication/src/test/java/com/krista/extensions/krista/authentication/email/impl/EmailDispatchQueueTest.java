@@ -0,0 +1,79 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.concurrent.TimeUnit;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue.Lane;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmailDispatchQueueTest {
+
+    private long now;
+    private final EmailDispatchQueue<String> queue = new EmailDispatchQueue<>(() -> now);
+
+    @Test
+    public void servesInteractiveFirst() throws InterruptedException {
+        queue.offer("report", Lane.BACKGROUND);
+        queue.offer("login", Lane.INTERACTIVE);
+
+        Assert.assertEquals("login", queue.take());
+        Assert.assertEquals("report", queue.take());
+    }
+
+    @Test
+    public void doesNotStarveBackground() throws InterruptedException {
+        queue.offer("report", Lane.BACKGROUND);
+        for (int i = 0; i < 20; i++) {
+            queue.offer("login-" + i, Lane.INTERACTIVE);
+        }
+
+        int taken = 0;
+        while (!queue.take().equals("report")) {
+            taken++;
+        }
+
+        Assert.assertEquals(8, taken);
+    }
+
+    @Test
+    public void servesAgedBackgroundBeforeFreshInteractive() throws InterruptedException {
+        queue.offer("report", Lane.BACKGROUND);
+        now += TimeUnit.SECONDS.toNanos(31);
+        queue.offer("login", Lane.INTERACTIVE);
+
+        Assert.assertEquals("report", queue.take());
+        Assert.assertEquals(1, queue.getStatistics(Lane.BACKGROUND).getOverdue());
+    }
+
+    @Test
+    public void reportsWaitTimePerLane() throws InterruptedException {
+        queue.offer("login", Lane.INTERACTIVE);
+        now += TimeUnit.MILLISECONDS.toNanos(300);
+        queue.take();
+
+        EmailDispatchQueue.Statistics statistics = queue.getStatistics(Lane.INTERACTIVE);
+        Assert.assertEquals(1, statistics.getDequeued());
+        Assert.assertEquals(300.0, statistics.getMeanWaitMillis(), 0.001);
+        Assert.assertEquals(0, statistics.getOverdue());
+        Assert.assertEquals(0, queue.getStatistics(Lane.BACKGROUND).getDequeued());
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributes;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmailInvokerAttributesProviderTest {
+
+    private final Map<String, Object> invokerAttributes = new HashMap<>(Map.of(
+            EmailAuthenticationConstants.USE_DEFAULT_MAIL_SERVER, "false",
+            EmailAuthenticationConstants.ALLOW_NEW_ACCOUNT_CREATION, "true",
+            EmailAuthenticationConstants.SUPPORTED_DOMAINS, "example.com",
+            EmailAuthenticationConstants.SENDER_EMAIL_ADDRESS, "noreply@example.com",
+            EmailAuthenticationConstants.SMTP_HOST, "smtp.example.com",
+            EmailAuthenticationConstants.SMTP_PORT, "587"));
+    private final EmailInvokerAttributesProvider provider =
+            new EmailInvokerAttributesProvider(Fakes.invoker(invokerAttributes));
+
+    @Test
+    public void reusesSnapshotUntilUpdate() {
+        EmailInvokerAttributes attributes = provider.getAttributes();
+        invokerAttributes.put(EmailAuthenticationConstants.SUPPORTED_DOMAINS, "example.org");
+
+        Assert.assertSame(attributes, provider.getAttributes());
+        Assert.assertEquals(1, attributes.getVersion());
+        Assert.assertEquals(List.of("example.com"), attributes.getSupportedDomains());
+    }
+
+    @Test
+    public void swapsSnapshotWithHigherVersion() {
+        EmailInvokerAttributes attributes = provider.getAttributes();
+        Map<String, Object> updated = new HashMap<>(invokerAttributes);
+        updated.put(EmailAuthenticationConstants.SUPPORTED_DOMAINS, "example.org");
+
+        provider.updateAttributes(updated);
+
+        Assert.assertEquals(2, provider.getAttributes().getVersion());
+        Assert.assertEquals(List.of("example.org"), provider.getAttributes().getSupportedDomains());
+        Assert.assertEquals(List.of("example.com"), attributes.getSupportedDomains());
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.mail.Address;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Provider;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.URLName;
+import app.krista.extensions.krista.authentication.email_authentication.mail.CircuitBreaker;
+import app.krista.extensions.krista.authentication.email_authentication.mail.DeliveryListener;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailDispatchQueue;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailConfiguration;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailSender;
+import app.krista.extensions.krista.authentication.email_authentication.mail.MailSessionProvider;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpRelay;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpRelayPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EmailSenderTest {
+
+    private static final AtomicInteger SENT = new AtomicInteger();
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static final AtomicInteger MAX_IN_FLIGHT = new AtomicInteger();
+    private static final AtomicBoolean FAIL = new AtomicBoolean();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private final SmtpRelay relay = new SmtpRelay(new EmailConfiguration.Relay("smtp.example.com", 587, 1,
+            EmailConfiguration.Protocol.START_TLS), new FakeMailSessionProvider(), 8);
+    private final EmailSender emailSender = new EmailSender(new SmtpRelayPool(List.of(relay)), circuitBreaker, 16);
+
+    @Test
+    public void queuesBurstBeyondRelaySlotsWithoutDroppingMail() throws Exception {
+        // Given more workers than the relay starts out accepting
+        Assert.assertTrue(relay.getConcurrencyLimiter().getLimit() < 16);
+        SENT.set(0);
+        MAX_IN_FLIGHT.set(0);
+        FAIL.set(false);
+        emailSender.init();
+        try {
+            // When a burst larger than the worker count is sent
+            for (int i = 0; i < 40; i++) {
+                emailSender.sendMessage("user" + i + "@example.com", "Login", "link", "session-" + i);
+            }
+            await(() -> SENT.get() >= 40);
+
+            // Then every message is delivered within the relay limit and the breaker stays closed
+            Assert.assertEquals(40, SENT.get());
+            Assert.assertTrue(MAX_IN_FLIGHT.get() <= 8);
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        } finally {
+            emailSender.shutdown();
+        }
+    }
+
+    @Test
+    public void reportsDeliveryOutcomeOfSession() throws Exception {
+        Queue<String> outcomes = new ConcurrentLinkedQueue<>();
+        DeliveryListener deliveryListener = new DeliveryListener() {
+            @Override
+            public void onSent(String sessionId) {
+                outcomes.add("sent " + sessionId);
+            }
+
+            @Override
+            public void onFailed(String sessionId) {
+                outcomes.add("failed " + sessionId);
+            }
+        };
+        FAIL.set(false);
+        emailSender.init();
+        try {
+            emailSender.sendMessage("a@example.com", "Login", "link", "session-1",
+                    EmailDispatchQueue.Lane.INTERACTIVE, deliveryListener);
+            await(() -> outcomes.size() >= 1);
+
+            FAIL.set(true);
+            emailSender.sendMessage("b@example.com", "Login", "link", "session-2",
+                    EmailDispatchQueue.Lane.INTERACTIVE, deliveryListener);
+            await(() -> outcomes.size() >= 2);
+        } finally {
+            emailSender.shutdown();
+        }
+        emailSender.sendMessage("c@example.com", "Login", "link", "session-3", EmailDispatchQueue.Lane.INTERACTIVE,
+                deliveryListener);
+
+        Assert.assertEquals(List.of("sent session-1", "failed session-2", "failed session-3"),
+                new ArrayList<>(outcomes));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static final class FakeMailSessionProvider extends MailSessionProvider {
+
+        private final Session session;
+
+        private FakeMailSessionProvider() {
+            super(new Properties(), null, null);
+            Properties properties = new Properties();
+            properties.setProperty("mail.transport.protocol", "fake");
+            session = Session.getInstance(properties);
+            session.addProvider(new Provider(Provider.Type.TRANSPORT, "fake", FakeTransport.class.getName(),
+                    "test", "1"));
+        }
+
+        @Override
+        public synchronized Session getSession() {
+            return session;
+        }
+
+    }
+
+    /**
+     * Transport that accepts every message after a short delay, so a burst keeps the relay slots busy,
+     * or rejects every message while FAIL is set.
+     */
+    public static final class FakeTransport extends Transport {
+
+        public FakeTransport(Session session, URLName urlName) {
+            super(session, urlName);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            if (FAIL.get()) {
+                throw new MessagingException("550 Mailbox unavailable");
+            }
+            MAX_IN_FLIGHT.accumulateAndGet(IN_FLIGHT.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException cause) {
+                Thread.currentThread().interrupt();
+            } finally {
+                IN_FLIGHT.decrementAndGet();
+            }
+            SENT.incrementAndGet();
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import app.krista.extension.executor.Invoker;
+import app.krista.ksdk.authorization.ModifiableRole;
+
+/**
+ * Fakes of SDK interfaces backed by dynamic proxies, so a test only depends on the methods the code under test
+ * calls. Any other method throws UnsupportedOperationException.
+ */
+final class Fakes {
+
+    private Fakes() {
+    }
+
+    static <T> T proxy(Class<T> type, String methodName, Answer answer) {
+        return proxy(type, Map.of(methodName, answer));
+    }
+
+    static <T> T proxy(Class<T> type, Map<String, Answer> answers) {
+        return type.cast(Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Answer answer = answers.get(method.getName());
+                    if (answer == null) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return answer.apply(args);
+                }));
+    }
+
+    static ModifiableRole role(String roleId, String name) {
+        return proxy(ModifiableRole.class, Map.of("getRoleId", args -> roleId, "getName", args -> name));
+    }
+
+    static Invoker invoker(Map<String, Object> attributes) {
+        return proxy(Invoker.class, "getAttributes", args -> attributes);
+    }
+
+    interface Answer {
+
+        Object apply(Object[] args);
+
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.Map;
+import app.krista.extensions.krista.authentication.email_authentication.utils.HtmlTemplate;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HtmlTemplateTest {
+
+    @Test
+    public void rendersSlotsBetweenLiterals() {
+        HtmlTemplate template = HtmlTemplate.compile("<p>__error</p><input value=\"__originalUrl\"/>");
+
+        String page = template.render(Map.of("__error", "Invalid email", "__originalUrl", "/app"));
+
+        Assert.assertEquals("<p>Invalid email</p><input value=\"/app\"/>", page);
+    }
+
+    @Test
+    public void escapesValues() {
+        HtmlTemplate template = HtmlTemplate.compile("<input value=\"__originalUrl\"/>");
+
+        String page = template.render(Map.of("__originalUrl", "/a?x=1&y=\"><script>'"));
+
+        Assert.assertEquals("<input value=\"/a?x=1&amp;y=&quot;&gt;&lt;script&gt;&#39;\"/>", page);
+    }
+
+    @Test
+    public void keepsSlotsWithoutValue() {
+        HtmlTemplate template = HtmlTemplate.compile("Check '__email' __ and __9");
+
+        Assert.assertEquals("Check '__email' __ and __9", template.render(Map.of()));
+    }
+
+    @Test
+    public void rendersSameSlotTwiceAndUnicode() {
+        HtmlTemplate template = HtmlTemplate.compile("__userName – __userName");
+
+        Assert.assertEquals("Zoë – Zoë", template.render(Map.of("__userName", "Zoë")));
+    }
+
+    @Test
+    public void loadsClassPathTemplateOnce() {
+        ClassLoader classLoader = HtmlTemplateTest.class.getClassLoader();
+
+        HtmlTemplate template = HtmlTemplate.get(classLoader, "login.html");
+
+        Assert.assertSame(template, HtmlTemplate.get(classLoader, "login.html"));
+        String page = template.render(Map.of("__error", "", "__originalUrl", "/app"));
+        Assert.assertTrue(page.contains("value=\"/app\""));
+        Assert.assertFalse(page.contains("__error"));
+    }
+
+}
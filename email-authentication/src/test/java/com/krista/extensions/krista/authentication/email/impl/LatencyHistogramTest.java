@@ -0,0 +1,94 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyHistogram;
+import app.krista.extensions.krista.authentication.email_authentication.utils.PrometheusText;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void reportsQuantilesWithinBucketPrecision() {
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(500), histogram.getQuantileNanos(0.5));
+        assertWithin(TimeUnit.MILLISECONDS.toNanos(990), histogram.getQuantileNanos(0.99));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), histogram.getQuantileNanos(0.999));
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(500500), histogram.getSumNanos());
+    }
+
+    @Test
+    public void handlesEmptyAndExtremeValues() {
+        Assert.assertEquals(0, histogram.getQuantileNanos(0.5));
+
+        histogram.record(-5);
+        histogram.record(TimeUnit.DAYS.toNanos(400));
+
+        Assert.assertEquals(TimeUnit.MICROSECONDS.toNanos(1), histogram.getQuantileNanos(0.5));
+        Assert.assertEquals(TimeUnit.DAYS.toNanos(400), histogram.getQuantileNanos(1));
+    }
+
+    @Test
+    public void recordsConcurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executorService.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    histogram.record(TimeUnit.MICROSECONDS.toNanos(j));
+                }
+            });
+        }
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(80000, histogram.getCount());
+    }
+
+    @Test
+    public void exportsPrometheusSummary() {
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+
+        String text = new PrometheusText()
+                .summary("authn_request_duration_seconds", "Latency.", "endpoint", Map.of("POST /login", histogram))
+                .toString();
+
+        Assert.assertTrue(text.startsWith("# HELP authn_request_duration_seconds Latency.\n"
+                + "# TYPE authn_request_duration_seconds summary\n"));
+        Assert.assertTrue(text.contains("authn_request_duration_seconds{endpoint=\"POST /login\",quantile=\"0.5\"} "
+                + "0.002\n"));
+        Assert.assertTrue(text.contains("authn_request_duration_seconds_count{endpoint=\"POST /login\"} 1\n"));
+    }
+
+    private static void assertWithin(long expectedNanos, long actualNanos) {
+        Assert.assertTrue(actualNanos + " is not close to " + expectedNanos,
+                Math.abs(actualNanos - expectedNanos) <= expectedNanos * 0.07);
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.Set;
+import app.krista.extensions.krista.authentication.email_authentication.rest.LoginRateLimitFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoginRateLimitFilterTest {
+
+    private final Set<String> trustedProxies = Set.of("10.0.0.1", "10.0.0.2");
+
+    @Test
+    public void ignoresForwardedForFromUntrustedConnection() {
+        Assert.assertEquals("203.0.113.9",
+                LoginRateLimitFilter.getClientAddress("203.0.113.9", "198.51.100.1", trustedProxies));
+        Assert.assertEquals("203.0.113.9", LoginRateLimitFilter.getClientAddress("203.0.113.9", null, Set.of()));
+    }
+
+    @Test
+    public void takesRightMostUntrustedHop() {
+        Assert.assertEquals("198.51.100.7", LoginRateLimitFilter.getClientAddress("10.0.0.1",
+                "1.2.3.4, 198.51.100.7, 10.0.0.2", trustedProxies));
+        Assert.assertEquals("198.51.100.7", LoginRateLimitFilter.getClientAddress("10.0.0.1",
+                "198.51.100.7,", trustedProxies));
+    }
+
+    @Test
+    public void fallsBackToTrustedAddresses() {
+        Assert.assertEquals("10.0.0.1", LoginRateLimitFilter.getClientAddress("10.0.0.1", " ", trustedProxies));
+        Assert.assertEquals("10.0.0.2", LoginRateLimitFilter.getClientAddress("10.0.0.1", "10.0.0.2", trustedProxies));
+        Assert.assertNull(LoginRateLimitFilter.getClientAddress(null, "198.51.100.7", trustedProxies));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.List;
+import app.krista.extensions.krista.authentication.email_authentication.rest.LoginStages;
+import app.krista.extensions.krista.authentication.email_authentication.rest.LoginStages.Stage;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoginStagesTest {
+
+    private final LoginStages loginStages = new LoginStages();
+
+    @Test
+    public void countsRejectingStage() {
+        LoginStages.Trace trace = loginStages.start();
+        trace.passed(Stage.SYNTAX);
+        trace.lead();
+        trace.finish();
+
+        List<LoginStages.Statistics> statistics = loginStages.getStatistics();
+        Assert.assertEquals(1, statistics.get(Stage.SYNTAX.ordinal()).getPassed());
+        Assert.assertEquals(1, statistics.get(Stage.DOMAIN_POLICY.ordinal()).getRejected());
+        Assert.assertEquals(0, statistics.get(Stage.ACCOUNT_LOOKUP.ordinal()).getPassed());
+    }
+
+    @Test
+    public void completedRequestRejectsNothing() {
+        LoginStages.Trace trace = loginStages.start().lead();
+        for (Stage stage : Stage.values()) {
+            trace.passed(stage);
+        }
+        trace.finish();
+
+        for (LoginStages.Statistics statistics : loginStages.getStatistics()) {
+            Assert.assertEquals(1, statistics.getPassed());
+            Assert.assertEquals(0, statistics.getRejected());
+        }
+    }
+
+    @Test
+    public void countsJoinedRequestAsShared() {
+        LoginStages.Trace trace = loginStages.start();
+        trace.passed(Stage.SYNTAX);
+        trace.finish();
+
+        Assert.assertEquals(1, loginStages.getShared());
+        Assert.assertEquals(0, loginStages.getStatistics().get(Stage.DOMAIN_POLICY.ordinal()).getRejected());
+    }
+
+    @Test
+    public void continuesHandedOffTrace() {
+        LoginStages.Trace trace = loginStages.start().lead();
+        trace.passed(Stage.SYNTAX);
+        trace.passed(Stage.DOMAIN_POLICY);
+        trace.passed(Stage.DELIVERY_HEALTH);
+
+        LoginStages.Trace background = trace.handOff();
+        trace.finish();
+        background.resume();
+        background.passed(Stage.ACCOUNT_LOOKUP);
+        background.finish();
+
+        List<LoginStages.Statistics> statistics = loginStages.getStatistics();
+        Assert.assertEquals(1, statistics.get(Stage.ACCOUNT_LOOKUP.ordinal()).getPassed());
+        Assert.assertEquals(1, statistics.get(Stage.PROVISIONING.ordinal()).getRejected());
+        Assert.assertEquals(0, loginStages.getShared());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsSkippedStage() {
+        loginStages.start().passed(Stage.PROVISIONING);
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import app.krista.extensions.krista.authentication.email_authentication.rest.MetricsResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsResourceTest {
+
+    @Test
+    public void acceptsConfiguredBearerToken() {
+        Assert.assertTrue(MetricsResource.isAuthorized("Bearer s3cret", "s3cret"));
+        Assert.assertTrue(MetricsResource.isAuthorized("bearer  s3cret ", "s3cret"));
+    }
+
+    @Test
+    public void rejectsMissingOrWrongToken() {
+        Assert.assertFalse(MetricsResource.isAuthorized(null, "s3cret"));
+        Assert.assertFalse(MetricsResource.isAuthorized("Bearer other", "s3cret"));
+        Assert.assertFalse(MetricsResource.isAuthorized("Basic s3cret", "s3cret"));
+        Assert.assertFalse(MetricsResource.isAuthorized("Bearer", "s3cret"));
+        Assert.assertFalse(MetricsResource.isAuthorized("Bearer s3cret", null));
+    }
+
+}
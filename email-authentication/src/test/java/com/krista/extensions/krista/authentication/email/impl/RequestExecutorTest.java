@@ -0,0 +1,96 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.ws.rs.container.AsyncResponse;
+import app.krista.extensions.krista.authentication.email_authentication.rest.RequestExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RequestExecutorTest {
+
+    private final RequestExecutor requestExecutor = new RequestExecutor();
+    private final CompletableFuture<Object> resumed = new CompletableFuture<>();
+    private final CompletableFuture<Thread> resumingThread = new CompletableFuture<>();
+    private final CompletableFuture<Long> timeoutSeconds = new CompletableFuture<>();
+    private volatile boolean suspended = true;
+
+    @Test
+    public void resumesWithResultOnVirtualThread() throws Exception {
+        requestExecutor.execute(asyncResponse(), () -> "page");
+
+        Assert.assertEquals("page", resumed.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(resumingThread.get().isVirtual());
+        Assert.assertEquals(30L, (long) timeoutSeconds.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void resumesWithException() throws Exception {
+        requestExecutor.execute(asyncResponse(), () -> {
+            throw new IllegalArgumentException("Email address 'x' is not valid.");
+        });
+
+        Object result = resumed.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(result instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void setsTimeoutBeforeFastCallResumes() throws Exception {
+        requestExecutor.execute(asyncResponse(), () -> "logout");
+
+        Assert.assertEquals("logout", resumed.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(30L, (long) timeoutSeconds.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Behaves like a container response: setting the timeout after it was resumed fails. Setting the timeout
+     * handler gives an already submitted call time to resume first.
+     */
+    private AsyncResponse asyncResponse() {
+        return (AsyncResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{AsyncResponse.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "resume":
+                            suspended = false;
+                            resumingThread.complete(Thread.currentThread());
+                            return resumed.complete(args[0]);
+                        case "setTimeoutHandler":
+                            try {
+                                resumed.get(200, TimeUnit.MILLISECONDS);
+                            } catch (TimeoutException expected) {
+                                // not resumed yet
+                            }
+                            return null;
+                        case "setTimeout":
+                            if (!suspended) {
+                                throw new IllegalStateException("Response is not suspended.");
+                            }
+                            timeoutSeconds.complete(((TimeUnit) args[1]).toSeconds((Long) args[0]));
+                            return true;
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import app.krista.extensions.krista.authentication.email_authentication.impl.RoleIndex;
+import app.krista.ksdk.authorization.ModifiableRole;
+import app.krista.ksdk.authorization.RoleManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RoleIndexTest {
+
+    private long now;
+    private final FakeRoleManager roleManager = new FakeRoleManager();
+    private final RoleIndex roleIndex = new RoleIndex(roleManager.proxy(), Duration.ofMinutes(5), () -> now);
+
+    @Test
+    public void resolvesFromCachedIndex() {
+        roleManager.createRole("Admin");
+        roleManager.createRole("User");
+
+        Assert.assertEquals(List.of("role-1", "role-0"), roleIndex.resolve(List.of("User", "Admin")));
+        Assert.assertEquals(List.of("role-0"), roleIndex.resolve(List.of("Admin")));
+        Assert.assertEquals(1, roleManager.scans);
+    }
+
+    @Test
+    public void createsMissingRolesOnce() {
+        roleManager.createRole("Admin");
+
+        List<String> roleIds = roleIndex.resolve(List.of("Admin", "Sales", "Support", "Sales"));
+        roleIndex.resolve(List.of("Sales", "Support"));
+
+        Assert.assertEquals(List.of("role-0", "role-1", "role-2", "role-1"), roleIds);
+        Assert.assertEquals(3, roleManager.roles.size());
+        Assert.assertEquals(1, roleManager.scans);
+    }
+
+    @Test
+    public void createsMissingRoleOnceUnderConcurrency() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executorService.submit(() -> {
+                start.await();
+                return roleIndex.resolve(List.of("Sales"));
+            }));
+        }
+        start.countDown();
+        for (Future<List<String>> result : results) {
+            Assert.assertEquals(List.of("role-0"), result.get());
+        }
+        executorService.shutdown();
+
+        Assert.assertEquals(1, roleManager.roles.size());
+        Assert.assertEquals(1, roleManager.scans);
+    }
+
+    @Test
+    public void reloadsAfterInvalidate() {
+        roleManager.createRole("Admin");
+        roleIndex.resolve(List.of("Admin"));
+
+        roleIndex.invalidate();
+        roleIndex.resolve(List.of("Admin"));
+
+        Assert.assertEquals(2, roleManager.scans);
+    }
+
+    @Test
+    public void reloadsAfterTimeToLive() {
+        roleManager.createRole("Admin");
+        roleIndex.resolve(List.of("Admin"));
+
+        now += Duration.ofMinutes(6).toNanos();
+        roleIndex.resolve(List.of("Admin"));
+
+        Assert.assertEquals(2, roleManager.scans);
+    }
+
+    /**
+     * In memory role manager that counts full scans of the workspace roles.
+     */
+    private static final class FakeRoleManager {
+
+        private final List<ModifiableRole> roles = new ArrayList<>();
+        private int scans;
+
+        private RoleManager proxy() {
+            return Fakes.proxy(RoleManager.class, Map.of("getRoles", args -> {
+                scans++;
+                return new ArrayList<>(roles);
+            }, "createRole", args -> createRole((String) args[0])));
+        }
+
+        private ModifiableRole createRole(String name) {
+            ModifiableRole role = Fakes.role("role-" + roles.size(), name);
+            roles.add(role);
+            return role;
+        }
+
+    }
+
+}
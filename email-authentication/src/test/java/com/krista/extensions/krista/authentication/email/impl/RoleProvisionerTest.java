@@ -0,0 +1,57 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.List;
+import java.util.Map;
+import app.krista.extensions.krista.authentication.email_authentication.EmailAuthenticationConstants;
+import app.krista.extensions.krista.authentication.email_authentication.impl.EmailInvokerAttributesProvider;
+import app.krista.extensions.krista.authentication.email_authentication.impl.RoleProvisioner;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RoleProvisionerTest {
+
+    @Test
+    public void returnsConfiguredRoleNames() {
+        RoleProvisioner roleProvisioner =
+                new RoleProvisioner(new EmailInvokerAttributesProvider(Fakes.invoker(attributes("Sales, Support"))));
+
+        Assert.assertEquals(List.of("Sales", "Support"), roleProvisioner.getDefaultRoleNames());
+    }
+
+    @Test
+    public void fallsBackToDefaultRole() {
+        RoleProvisioner roleProvisioner =
+                new RoleProvisioner(new EmailInvokerAttributesProvider(Fakes.invoker(attributes(" "))));
+
+        Assert.assertEquals(List.of(EmailAuthenticationConstants.DEFAULT_ROLE), roleProvisioner.getDefaultRoleNames());
+    }
+
+    private static Map<String, Object> attributes(String defaultRoles) {
+        return Map.of(
+                EmailAuthenticationConstants.USE_DEFAULT_MAIL_SERVER, "false",
+                EmailAuthenticationConstants.ALLOW_NEW_ACCOUNT_CREATION, "true",
+                EmailAuthenticationConstants.DEFAULT_ROLES_FOR_NEW_ACCOUNT, defaultRoles,
+                EmailAuthenticationConstants.SENDER_EMAIL_ADDRESS, "noreply@example.com",
+                EmailAuthenticationConstants.SMTP_HOST, "smtp.example.com",
+                EmailAuthenticationConstants.SMTP_PORT, "587");
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import app.krista.extensions.krista.authentication.email_authentication.impl.LoginStatus;
+import app.krista.extensions.krista.authentication.email_authentication.impl.SessionManager;
+import app.krista.extensions.krista.authentication.email_authentication.utils.LatencyMetrics;
+import app.krista.extensions.util.KeyValueStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SessionManagerTest {
+
+    private final Map<String, Object> values = new HashMap<>();
+    private final SessionManager sessionManager = new SessionManager(keyValueStore(), new LatencyMetrics());
+
+    @Test
+    public void removesFinalStatusOnceRead() throws Exception {
+        sessionManager.setStatus("s-1", LoginStatus.sent());
+
+        Assert.assertEquals(LoginStatus.State.SENT, sessionManager.getStatus("s-1").getState());
+        Assert.assertTrue(values.isEmpty());
+        Assert.assertEquals(LoginStatus.State.PENDING, sessionManager.getStatus("s-1").getState());
+    }
+
+    @Test
+    public void removesStatusWithSession() throws Exception {
+        sessionManager.create("s-1", "account-1");
+        sessionManager.setStatus("s-1", LoginStatus.pending());
+
+        sessionManager.remove("s-1");
+
+        Assert.assertTrue(values.isEmpty());
+    }
+
+    private KeyValueStore keyValueStore() {
+        return Fakes.proxy(KeyValueStore.class, Map.of("put", args -> {
+            values.put((String) args[0], args[1]);
+            return null;
+        }, "get", args -> values.get(args[0]), "remove", args -> {
+            values.remove(args[0]);
+            return null;
+        }));
+    }
+
+}
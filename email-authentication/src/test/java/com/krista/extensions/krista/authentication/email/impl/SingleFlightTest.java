@@ -0,0 +1,115 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import app.krista.extensions.krista.authentication.email_authentication.utils.SingleFlight;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+    @Test
+    public void sharesInFlightResult() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executorService.submit(() -> singleFlight.execute("bob@x.com", () -> {
+                calls.incrementAndGet();
+                release.await();
+                return "session-1";
+            })));
+        }
+        while (singleFlight.size() == 0 || calls.get() == 0) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Assert.assertEquals("session-1", result.get(5, TimeUnit.SECONDS));
+        }
+        executorService.shutdown();
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    public void runsAgainAfterCompletion() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("bob@x.com", () -> "session-" + calls.incrementAndGet());
+
+        Assert.assertEquals("session-2", singleFlight.execute("bob@x.com", () -> "session-" + calls.incrementAndGet()));
+    }
+
+    @Test
+    public void interruptedCallerStopsWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<String> leader = executorService.submit(() -> singleFlight.execute("bob@x.com", () -> {
+            release.await();
+            return "session-1";
+        }));
+        while (singleFlight.size() == 0) {
+            Thread.sleep(5);
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread joiner = new Thread(() -> {
+            try {
+                singleFlight.execute("bob@x.com", () -> "session-2");
+            } catch (Throwable cause) {
+                failure.set(Thread.currentThread().isInterrupted() ? cause : null);
+            }
+        });
+        joiner.start();
+        Thread.sleep(50);
+
+        joiner.interrupt();
+        joiner.join(1000);
+
+        Assert.assertFalse(joiner.isAlive());
+        Assert.assertTrue(failure.get() instanceof CancellationException);
+        release.countDown();
+        Assert.assertEquals("session-1", leader.get(5, TimeUnit.SECONDS));
+        executorService.shutdown();
+    }
+
+    @Test(expected = IOException.class)
+    public void propagatesCheckedException() throws IOException {
+        singleFlight.execute("bob@x.com", () -> {
+            throw new IOException("key value store unavailable");
+        });
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailConfiguration;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpRelay;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpRelayPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SmtpRelayPoolTest {
+
+    @Test
+    public void parseRelays() {
+        List<EmailConfiguration.Relay> relays =
+                EmailConfiguration.parseRelays("smtp-a.example.com:587*3, smtp-b.example.com", 465);
+
+        Assert.assertEquals(2, relays.size());
+        Assert.assertEquals("smtp-a.example.com", relays.get(0).getHost());
+        Assert.assertEquals(587, relays.get(0).getPort());
+        Assert.assertEquals(3, relays.get(0).getWeight());
+        Assert.assertEquals(EmailConfiguration.Protocol.START_TLS, relays.get(0).getProtocol());
+        Assert.assertEquals(465, relays.get(1).getPort());
+        Assert.assertEquals(1, relays.get(1).getWeight());
+        Assert.assertEquals(EmailConfiguration.Protocol.SMTPS, relays.get(1).getProtocol());
+    }
+
+    @Test
+    public void parseRelays_ipv6() {
+        List<EmailConfiguration.Relay> relays =
+                EmailConfiguration.parseRelays("::1, [2001:db8::1]:25*2, [2001:db8::2], 192.0.2.1:587", 465);
+
+        Assert.assertEquals(4, relays.size());
+        Assert.assertEquals("::1", relays.get(0).getHost());
+        Assert.assertEquals(465, relays.get(0).getPort());
+        Assert.assertEquals("2001:db8::1", relays.get(1).getHost());
+        Assert.assertEquals(25, relays.get(1).getPort());
+        Assert.assertEquals(2, relays.get(1).getWeight());
+        Assert.assertEquals("2001:db8::2", relays.get(2).getHost());
+        Assert.assertEquals(465, relays.get(2).getPort());
+        Assert.assertEquals("192.0.2.1", relays.get(3).getHost());
+        Assert.assertEquals(587, relays.get(3).getPort());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseRelays_unclosedBracket() {
+        EmailConfiguration.parseRelays("[2001:db8::1:25", 465);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseRelays_invalidWeight() {
+        EmailConfiguration.parseRelays("smtp-a.example.com*x", 465);
+    }
+
+    @Test
+    public void selectSpreadsByWeight() {
+        SmtpRelayPool relayPool = new SmtpRelayPool(List.of(relay("a", 3), relay("b", 1)));
+        Map<String, Integer> selections = new HashMap<>();
+
+        for (int i = 0; i < 8; i++) {
+            selections.merge(relayPool.select(Set.of()).getConfiguration().getHost(), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(6, (int) selections.get("a"));
+        Assert.assertEquals(2, (int) selections.get("b"));
+    }
+
+    @Test
+    public void selectSkipsEjectedRelay() {
+        SmtpRelay unhealthy = relay("a", 3);
+        SmtpRelayPool relayPool = new SmtpRelayPool(List.of(unhealthy, relay("b", 1)));
+        for (int i = 0; i < 3; i++) {
+            unhealthy.onFailure(0);
+        }
+
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            selected.add(relayPool.select(Set.of()).getConfiguration().getHost());
+        }
+
+        Assert.assertEquals(List.of("b", "b", "b", "b"), selected);
+        Assert.assertFalse(unhealthy.getMetrics().isHealthy());
+        Assert.assertEquals(3, unhealthy.getMetrics().getFailedMessages());
+    }
+
+    @Test
+    public void selectFailsOverToUntriedRelay() {
+        SmtpRelay first = relay("a", 1);
+        SmtpRelayPool relayPool = new SmtpRelayPool(List.of(first, relay("b", 1)));
+
+        Assert.assertEquals("b", relayPool.select(Set.of(first)).getConfiguration().getHost());
+        Assert.assertNull(relayPool.select(Set.copyOf(relayPool.getRelays())));
+    }
+
+    private static SmtpRelay relay(String host, int weight) {
+        return new SmtpRelay(new EmailConfiguration.Relay(host, 465, weight, EmailConfiguration.Protocol.SMTPS),
+                null, 1);
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.util.List;
+import java.util.Properties;
+import app.krista.extensions.krista.authentication.email_authentication.mail.EmailConfiguration;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpTlsContext;
+import app.krista.extensions.krista.authentication.email_authentication.mail.SmtpTransportProperties;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SmtpTransportPropertiesTest {
+
+    private final SmtpTlsContext tlsContext = new SmtpTlsContext();
+
+    @Test
+    public void startTls() {
+        Properties properties = create(587);
+
+        Assert.assertEquals("true", properties.get("mail.smtp.starttls.required"));
+        Assert.assertNull(properties.get("mail.smtp.ssl.enable"));
+        Assert.assertSame(tlsContext.getSocketFactory(), properties.get("mail.smtp.ssl.socketFactory"));
+    }
+
+    @Test
+    public void smtps() {
+        Properties properties = create(465);
+
+        Assert.assertEquals("true", properties.get("mail.smtp.ssl.enable"));
+        Assert.assertNull(properties.get("mail.smtp.starttls.enable"));
+        Assert.assertEquals("465", properties.get("mail.smtp.port"));
+        Assert.assertNull(properties.get("mail.smtp.socketFactory.class"));
+    }
+
+    @Test
+    public void plainSmtpUsesOpportunisticStartTls() {
+        Properties properties = create(25);
+
+        Assert.assertEquals("true", properties.get("mail.smtp.starttls.enable"));
+        Assert.assertNull(properties.get("mail.smtp.starttls.required"));
+        Assert.assertNull(properties.get("mail.smtp.ssl.enable"));
+    }
+
+    private Properties create(int port) {
+        List<EmailConfiguration.Relay> relays = EmailConfiguration.parseRelays("smtp.example.com:" + port, 465);
+        EmailConfiguration configuration =
+                new EmailConfiguration(false, "noreply@example.com", "account", "password", relays);
+        return SmtpTransportProperties.create(configuration, relays.get(0), tlsContext.getSocketFactory());
+    }
+
+}
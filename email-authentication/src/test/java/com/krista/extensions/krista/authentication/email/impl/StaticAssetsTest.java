@@ -0,0 +1,92 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import app.krista.extensions.krista.authentication.email_authentication.utils.StaticAssets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StaticAssetsTest {
+
+    private final StaticAssets staticAssets = new StaticAssets();
+
+    @Test
+    public void compressesLargeAssets() throws IOException {
+        byte[] content = "body { margin: 0; }\n".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+        StaticAssets.Asset asset = staticAssets.add("assets/vue.css", content, true);
+
+        Assert.assertTrue(asset.hasGzipVariant());
+        Assert.assertTrue(asset.getContent(true).length < content.length);
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(asset.getContent(true)))) {
+            Assert.assertArrayEquals(content, input.readAllBytes());
+        }
+        Assert.assertEquals("text/css;charset=UTF-8", asset.getContentType());
+        Assert.assertEquals(StaticAssets.IMMUTABLE, asset.getCacheControl());
+        Assert.assertNotEquals(asset.getETag(false), asset.getETag(true));
+    }
+
+    @Test
+    public void keepsSmallAssetsPlain() {
+        StaticAssets.Asset asset = staticAssets.add("README.md", "# Docs".getBytes(StandardCharsets.UTF_8), false);
+
+        Assert.assertFalse(asset.hasGzipVariant());
+        Assert.assertEquals(asset.getETag(false), asset.getETag(true));
+        Assert.assertEquals(StaticAssets.REVALIDATE, asset.getCacheControl());
+        Assert.assertSame(asset, staticAssets.get("README.md"));
+        Assert.assertNull(staticAssets.get("missing.md"));
+    }
+
+    @Test
+    public void etagFollowsContent() {
+        StaticAssets.Asset first = staticAssets.add("a.js", "one".getBytes(StandardCharsets.UTF_8), true);
+        StaticAssets.Asset same = staticAssets.add("b.js", "one".getBytes(StandardCharsets.UTF_8), true);
+        StaticAssets.Asset other = staticAssets.add("c.js", "two".getBytes(StandardCharsets.UTF_8), true);
+
+        Assert.assertEquals(first.getETag(false), same.getETag(false));
+        Assert.assertNotEquals(first.getETag(false), other.getETag(false));
+        Assert.assertTrue(first.getETag(false).startsWith("\"") && first.getETag(false).endsWith("\""));
+    }
+
+    @Test
+    public void matchesIfNoneMatch() {
+        StaticAssets.Asset asset = staticAssets.add("a.js", "x".repeat(1000).getBytes(StandardCharsets.UTF_8), true);
+
+        Assert.assertTrue(asset.isNotModified(asset.getETag(false)));
+        Assert.assertTrue(asset.isNotModified("\"other\", W/" + asset.getETag(true)));
+        Assert.assertTrue(asset.isNotModified("*"));
+        Assert.assertFalse(asset.isNotModified("\"other\""));
+        Assert.assertFalse(asset.isNotModified(null));
+    }
+
+    @Test
+    public void parsesAcceptEncoding() {
+        Assert.assertTrue(StaticAssets.acceptsGzip("gzip, deflate, br"));
+        Assert.assertTrue(StaticAssets.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        Assert.assertTrue(StaticAssets.acceptsGzip("*"));
+        Assert.assertFalse(StaticAssets.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(StaticAssets.acceptsGzip("br, deflate"));
+        Assert.assertFalse(StaticAssets.acceptsGzip(null));
+    }
+
+}
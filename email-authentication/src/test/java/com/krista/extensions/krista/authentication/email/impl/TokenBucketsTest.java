@@ -0,0 +1,88 @@
+/*
+ * Email Authentication Extension for Krista
+ * Copyright (C) 2025 Krista Software
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>. 
+ */
+
+package com.krista.extensions.krista.authentication.email.impl;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import app.krista.extensions.krista.authentication.email_authentication.utils.TokenBuckets;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketsTest {
+
+    private long now;
+
+    @Test
+    public void allowsBurstThenRefillRate() {
+        TokenBuckets tokenBuckets = new TokenBuckets(3, Duration.ofSeconds(10), 1024, () -> now);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0, tokenBuckets.tryAcquire("10.0.0.1"));
+        }
+        Assert.assertEquals(Duration.ofSeconds(10).toNanos(), tokenBuckets.tryAcquire("10.0.0.1"));
+        Assert.assertEquals(0, tokenBuckets.tryAcquire("10.0.0.2"));
+
+        now += Duration.ofSeconds(4).toNanos();
+        Assert.assertEquals(Duration.ofSeconds(6).toNanos(), tokenBuckets.tryAcquire("10.0.0.1"));
+        now += Duration.ofSeconds(6).toNanos();
+        Assert.assertEquals(0, tokenBuckets.tryAcquire("10.0.0.1"));
+        Assert.assertEquals(2, tokenBuckets.getRejected());
+    }
+
+    @Test
+    public void evictsIdleBucketsWhenFull() {
+        TokenBuckets tokenBuckets = new TokenBuckets(2, Duration.ofSeconds(1), 16, () -> now);
+        for (int i = 0; i < 200; i++) {
+            tokenBuckets.tryAcquire("client-" + i);
+        }
+        Assert.assertTrue(tokenBuckets.size() <= 16);
+        Assert.assertTrue(tokenBuckets.getUntracked() > 0);
+
+        now += Duration.ofSeconds(1).toNanos();
+        long untracked = tokenBuckets.getUntracked();
+        for (int i = 200; i < 216; i++) {
+            tokenBuckets.tryAcquire("client-" + i);
+        }
+        Assert.assertTrue(tokenBuckets.size() <= 16);
+        Assert.assertTrue(tokenBuckets.getUntracked() - untracked < 16);
+    }
+
+    @Test
+    public void grantsExactCapacityUnderContention() throws Exception {
+        TokenBuckets tokenBuckets = new TokenBuckets(50, Duration.ofHours(1), 1024, () -> now);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            executorService.execute(() -> {
+                if (tokenBuckets.tryAcquire("bob@example.com") == 0) {
+                    granted.incrementAndGet();
+                }
+            });
+        }
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(50, granted.get());
+        Assert.assertEquals(350, tokenBuckets.getRejected());
+    }
+
+}